@@ -19,6 +19,12 @@ public enum FlushReason {
      */
     TICK,
 
+    /**
+     * Flushed at the end of the server tick together with every other buffer
+     * served by the same network thread.
+     */
+    TICK_BATCH,
+
     /**
      * Flushed because a critical packet (e.g., KeepAlive) or a packet with a listener was sent.
      */
@@ -23,4 +23,27 @@ public interface NetworkBuffer {
      * @return the amount of pending data in bytes
      */
     long getPendingBytes();
+
+    /**
+     * Gets the byte limit after which this buffer is flushed early.
+     * In adaptive batching mode this value is tuned per player.
+     *
+     * @return the batch size limit in bytes
+     */
+    int getMaxBatchBytes();
+
+    /**
+     * Gets the packet count limit after which this buffer is flushed early.
+     * In adaptive batching mode this value is tuned per player.
+     *
+     * @return the batch size limit in packets
+     */
+    int getMaxBatchSize();
+
+    /**
+     * Gets the interval between timed flushes for this buffer.
+     *
+     * @return the flush interval in milliseconds, or 0 if the buffer is only flushed on tick end and limits
+     */
+    int getFlushInterval();
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package dev.pulsemc.pulse.api.network;
 
+import dev.pulsemc.pulse.api.virtual.block.VirtualBlockLayer;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 /**
@@ -18,6 +21,11 @@ public class PulseEngine {
      */
     public static Function<Player, PulsePlayer> provider;
 
+    /**
+     * Internal factory set by the server core to create shared virtual block layers.
+     */
+    public static BiFunction<World, Integer, VirtualBlockLayer> layerFactory;
+
     /**
      * Retrieves the {@link PulsePlayer} instance for a given Bukkit player.
      *
@@ -27,4 +35,18 @@ public class PulseEngine {
     public static PulsePlayer getPulsePlayer(Player player) {
         return (provider != null) ? provider.apply(player) : null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates a shared virtual block layer.
+     * Developers should prefer using {@link VirtualBlockLayer#create(World, int)}.
+     *
+     * @param world the world the layer's blocks are shown in
+     * @param priority the priority against other layers
+     * @return the new layer
+     * @throws IllegalStateException if the engine is not initialized
+     */
+    public static VirtualBlockLayer createLayer(World world, int priority) {
+        if (layerFactory == null) throw new IllegalStateException("Pulse engine is not initialized");
+        return layerFactory.apply(world, priority);
+    }
+}
@@ -0,0 +1,98 @@
+package dev.pulsemc.pulse.api.virtual.block;
+
+import dev.pulsemc.pulse.api.network.PulseEngine;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.util.Collection;
+
+/**
+ * A set of virtual (client-side only) blocks shared by every subscribed player.
+ * <p>
+ * Unlike {@link VirtualBlockManager}, a layer stores its blocks once no matter how many
+ * players see it, which makes it the right tool for holograms, arenas or decorations
+ * shown to many players at the same time. Layer blocks are restored after chunk
+ * resends just like blocks of the {@link VirtualBlockManager}.
+ * <p>
+ * When several sources place a block at the same position, the player's own
+ * {@link VirtualBlockManager} wins, followed by layers with higher priority.
+ */
+public interface VirtualBlockLayer {
+
+    /**
+     * Creates a new empty layer without subscribers.
+     *
+     * @param world the world the layer's blocks are shown in
+     * @param priority the priority against other layers, higher wins
+     * @return the new layer
+     */
+    static @NotNull VirtualBlockLayer create(@NotNull World world, int priority) {
+        return PulseEngine.createLayer(world, priority);
+    }
+
+    /**
+     * @return the world the layer's blocks are shown in
+     */
+    @NotNull World getWorld();
+
+    /**
+     * @return the priority against other layers, higher wins
+     */
+    int getPriority();
+
+    /**
+     * Sets a virtual block and shows it to all subscribers in the layer's world.
+     * Only the coordinates of the location are used.
+     *
+     * @param location the coordinates where the block should appear
+     * @param data the block state data to be displayed
+     */
+    void setBlock(@NotNull Location location, @NotNull BlockData data);
+
+    /**
+     * Removes a virtual block and shows subscribers what they should see in its place.
+     *
+     * @param location the coordinates to restore
+     */
+    void removeBlock(@NotNull Location location);
+
+    /**
+     * @param location the coordinates to check
+     * @return the {@link BlockData} of the layer's block, or null if the layer has none there
+     */
+    @Nullable BlockData getBlock(@NotNull Location location);
+
+    /**
+     * Removes all blocks of the layer and restores the view of all subscribers.
+     */
+    void clear();
+
+    /**
+     * Shows the layer to a player. Does nothing if the player is already subscribed.
+     *
+     * @param player the player to subscribe
+     */
+    void subscribe(@NotNull Player player);
+
+    /**
+     * Hides the layer from a player and restores their view.
+     * Players are unsubscribed automatically when they quit.
+     *
+     * @param player the player to unsubscribe
+     */
+    void unsubscribe(@NotNull Player player);
+
+    /**
+     * @param player the player to check
+     * @return true if the player sees this layer
+     */
+    boolean isSubscribed(@NotNull Player player);
+
+    /**
+     * @return a snapshot of all subscribed players
+     */
+    @NotNull Collection<Player> getSubscribers();
+}
@@ -4,6 +4,7 @@ import org.bukkit.Location;
 import org.bukkit.block.data.BlockData;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import java.util.Map;
 
 /**
  * Manages virtual (client-side only) blocks for a specific player.
@@ -25,6 +26,37 @@ public interface VirtualBlockManager {
      */
     void setBlock(@NotNull Location location, @NotNull BlockData data);
 
+    /**
+     * Sets many persistent virtual blocks at once.
+     * <p>
+     * Blocks are sent grouped by chunk section, one packet per section instead of one per block.
+     * Prefer this over repeated {@link #setBlock(Location, BlockData)} calls for structures.
+     *
+     * @param blocks the block state data to display, by location
+     */
+    void setBlocks(@NotNull Map<Location, BlockData> blocks);
+
+    /**
+     * Fills a box with persistent virtual blocks of the same type.
+     * <p>
+     * The box may hold at most {@code optimization.virtual-blocks.max-fill-volume} blocks
+     * (65536 by default), larger boxes are rejected without changing anything.
+     *
+     * @param from one corner of the box, inclusive
+     * @param to the opposite corner of the box, inclusive
+     * @param data the block state data to be displayed
+     * @throws IllegalArgumentException if the box is larger than the configured limit
+     */
+    void fill(@NotNull Location from, @NotNull Location to, @NotNull BlockData data);
+
+    /**
+     * Removes all virtual blocks inside a box and restores the actual server-side state.
+     *
+     * @param from one corner of the box, inclusive
+     * @param to the opposite corner of the box, inclusive
+     */
+    void clearRegion(@NotNull Location from, @NotNull Location to);
+
     /**
      * Removes a virtual block and restores the actual server-side state.
      * <p>
@@ -43,6 +75,21 @@ public interface VirtualBlockManager {
      */
     @Nullable BlockData getBlock(@NotNull Location location);
 
+    /**
+     * @return the number of virtual blocks tracked for this player
+     */
+    int getBlockCount();
+
+    /**
+     * Estimates the memory used by this player's virtual blocks.
+     * <p>
+     * Blocks in chunks the player can no longer see are kept in a compact form,
+     * so this usually drops when the player moves away from them.
+     *
+     * @return the estimated heap usage in bytes
+     */
+    long getMemoryUsage();
+
     /**
      * Clears all virtual blocks tracked for this player.
      * <p>
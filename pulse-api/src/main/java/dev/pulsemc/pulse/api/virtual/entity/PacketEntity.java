@@ -0,0 +1,85 @@
+package dev.pulsemc.pulse.api.virtual.entity;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.Location;
+import org.bukkit.entity.EntityType;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.util.UUID;
+
+/**
+ * A lightweight virtual entity that exists only as packets sent to one player.
+ * <p>
+ * Unlike entities spawned with {@link VirtualEntityManager#spawnEntity(Location, Class)},
+ * a packet entity is never added to the world: it has no AI, physics or collisions and
+ * costs nothing per server tick. Use it for large numbers of cosmetic NPCs and props.
+ * <p>
+ * Pulse hides the entity while its chunk is out of the player's view and shows it again
+ * when the chunk is sent. The entity is removed when the player quits.
+ */
+public interface PacketEntity {
+
+    /**
+     * @return the network id of the entity, unique across the server
+     */
+    int getEntityId();
+
+    /**
+     * @return the unique id the client knows the entity by
+     */
+    @NotNull UUID getUniqueId();
+
+    /**
+     * @return the type the entity is displayed as
+     */
+    @NotNull EntityType getType();
+
+    /**
+     * @return a copy of the current location, including a movement in progress
+     */
+    @NotNull Location getLocation();
+
+    /**
+     * Moves the entity instantly, cancelling any movement in progress.
+     *
+     * @param location the new position and rotation, the world is ignored
+     */
+    void teleport(@NotNull Location location);
+
+    /**
+     * Moves the entity smoothly over the given number of ticks.
+     *
+     * @param location the target position and rotation, the world is ignored
+     * @param ticks the duration of the movement, 1 or less teleports
+     */
+    void moveTo(@NotNull Location location, int ticks);
+
+    /**
+     * @param name the custom name, or null to remove it
+     */
+    void setCustomName(@Nullable Component name);
+
+    void setCustomNameVisible(boolean visible);
+
+    void setGlowing(boolean glowing);
+
+    void setInvisible(boolean invisible);
+
+    /**
+     * @param slot the slot to change
+     * @param item the item to display, or null to clear the slot
+     */
+    void setEquipment(@NotNull EquipmentSlot slot, @Nullable ItemStack item);
+
+    /**
+     * Removes the entity from the player's client. The handle can't be used afterwards.
+     */
+    void remove();
+
+    /**
+     * @return true until the entity is removed
+     */
+    boolean isValid();
+}
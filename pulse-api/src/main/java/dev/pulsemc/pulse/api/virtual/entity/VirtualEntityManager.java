@@ -2,6 +2,7 @@ package dev.pulsemc.pulse.api.virtual.entity;
 
 import org.bukkit.Location;
 import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import java.util.Collection;
@@ -40,6 +41,25 @@ public interface VirtualEntityManager {
      */
     @NotNull <T extends Entity> T spawnEntity(@NotNull Location location, @NotNull Class<T> clazz);
 
+    /**
+     * Spawns a packet-only entity without AI or a server-side presence.
+     * <p>
+     * The entity is sent only to this player and has no tick cost. See {@link PacketEntity}.
+     *
+     * @param location The spawn location.
+     * @param type The type the entity is displayed as.
+     * @return The handle used to move and change the entity.
+     * @throws IllegalArgumentException if the type can't be spawned, for example players.
+     */
+    @NotNull PacketEntity spawnPacketEntity(@NotNull Location location, @NotNull EntityType type);
+
+    /**
+     * Gets all packet-only entities of this player.
+     *
+     * @return A snapshot of the entities.
+     */
+    @NotNull Collection<PacketEntity> getPacketEntities();
+
     /**
      * Checks if the specified Bukkit entity is a virtual entity managed by Pulse.
      * <p>
@@ -58,7 +78,7 @@ public interface VirtualEntityManager {
     @NotNull Collection<Entity> getEntities();
 
     /**
-     * Removes all virtual entities belonging to this player.
+     * Removes all virtual entities belonging to this player, packet-only entities included.
      * <p>
      * This is automatically called when the player quits to prevent memory leaks.
      */
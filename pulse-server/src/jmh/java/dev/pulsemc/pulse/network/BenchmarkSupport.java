@@ -0,0 +1,51 @@
+package dev.pulsemc.pulse.network;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+
+/**
+ * Shared setup for the benchmarks, which run without a server.
+ */
+final class BenchmarkSupport {
+    private BenchmarkSupport() {}
+
+    /**
+     * Loads the registries, block states and packet classes need them.
+     */
+    static void bootstrap() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    /**
+     * Installs a {@link Server} that answers every call with a default value, for code that
+     * only asks Bukkit for the current tick. Set directly, {@link Bukkit#setServer} expects a
+     * complete server.
+     */
+    static void stubServer() throws ReflectiveOperationException {
+        if (Bukkit.getServer() != null) return;
+
+        Server server = (Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[]{Server.class},
+            (proxy, method, args) -> defaultValue(method.getReturnType()));
+        Field field = Bukkit.class.getDeclaredField("server");
+        field.setAccessible(true);
+        field.set(null, server);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0F;
+        if (type == double.class) return 0D;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+}
@@ -0,0 +1,83 @@
+package dev.pulsemc.pulse.network;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundBlockUpdatePacket;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The batch half of {@code PulseBuffer#processBlockQueue}: collecting block updates, grouping
+ * them by chunk and compacting each chunk per section. World lookups and sending are left out.
+ * <p>
+ * Run with {@code -Pjmh.args="BlockUpdateBatchBenchmark -prof gc"} for the allocation profile.
+ * What is left per flush are the compacted packets and their arrays.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockUpdateBatchBenchmark {
+    @Param({"1", "16"})
+    public int chunks;
+
+    @Param({"16", "256"})
+    public int updatesPerChunk;
+
+    private final BlockUpdateBatch batch = new BlockUpdateBatch();
+    private final SectionDelta sectionDelta = new SectionDelta();
+    private Packet<?>[] updates;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.bootstrap();
+        BlockState state = Blocks.STONE.defaultBlockState();
+        updates = new Packet<?>[chunks * updatesPerChunk];
+        int index = 0;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            for (int i = 0; i < updatesPerChunk; i++) {
+                // Spread over the sections of the chunk like an explosion would
+                BlockPos pos = new BlockPos(chunk * 16 + (i & 15), (i >> 4) * 4, (i * 7) & 15);
+                updates[index++] = new ClientboundBlockUpdatePacket(pos, state);
+            }
+        }
+    }
+
+    @Benchmark
+    public int processBatch() {
+        for (Packet<?> update : updates) {
+            batch.add(update, null);
+        }
+
+        int bytes = 0;
+        List<BlockUpdateBatch.ChunkGroup> groups = batch.groupByChunk();
+        for (int g = 0, size = groups.size(); g < size; g++) {
+            BlockUpdateBatch.ChunkGroup group = groups.get(g);
+            sectionDelta.clear();
+            for (int i = 0; i < group.size; i++) {
+                sectionDelta.add(batch.packets[group.indices[i]]);
+            }
+            for (Packet<?> packet : sectionDelta.toPackets()) {
+                bytes += PacketSizeEstimator.estimate(packet);
+            }
+        }
+        batch.clear();
+        return bytes;
+    }
+}
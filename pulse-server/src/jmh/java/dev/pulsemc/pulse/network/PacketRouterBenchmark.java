@@ -0,0 +1,78 @@
+package dev.pulsemc.pulse.network;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.common.ClientboundKeepAlivePacket;
+import net.minecraft.network.protocol.game.ClientboundBlockUpdatePacket;
+import net.minecraft.network.protocol.game.ClientboundMoveEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundRemoveEntitiesPacket;
+import net.minecraft.world.level.block.Blocks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing cost of {@link PulseBuffer#add}, alone and with four threads adding at once.
+ * <p>
+ * Every add starts with a {@link PacketRouter} lookup. The locked variants take a shared
+ * monitor around it like the synchronized add and flush did, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketRouterBenchmark {
+    private final Object lock = new Object();
+    private Packet<?>[] packets;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.bootstrap();
+        PacketRouter.rebuild();
+        packets = new Packet<?>[]{
+                new ClientboundKeepAlivePacket(1L),
+                new ClientboundMoveEntityPacket.Pos(1, (short) 1, (short) 0, (short) 0, true),
+                new ClientboundRemoveEntitiesPacket(1),
+                new ClientboundBlockUpdatePacket(BlockPos.ZERO, Blocks.STONE.defaultBlockState())
+        };
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void route(Blackhole blackhole) {
+        for (Packet<?> packet : packets) {
+            blackhole.consume(PacketRouter.route(packet));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void routeContended(Blackhole blackhole) {
+        for (Packet<?> packet : packets) {
+            blackhole.consume(PacketRouter.route(packet));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void routeContendedLocked(Blackhole blackhole) {
+        for (Packet<?> packet : packets) {
+            synchronized (lock) {
+                blackhole.consume(PacketRouter.route(packet));
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package dev.pulsemc.pulse.network;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Heap footprint of {@link VirtualBlockTracker} per chunk, measured with JOL for hot and frozen
+ * chunks at several block counts, next to the tracker's own {@link VirtualBlockTracker#estimateMemoryUsage()}.
+ * <p>
+ * Run with {@code ./gradlew :pulse-server:jolFootprint}.
+ */
+public final class VirtualBlockFootprint {
+    private static final int CHUNKS = 64;
+    private static final int[] BLOCKS_PER_CHUNK = {1, 16, 256, 4096};
+
+    private VirtualBlockFootprint() {}
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        BenchmarkSupport.bootstrap();
+        BenchmarkSupport.stubServer();
+
+        long empty = GraphLayout.parseInstance(new VirtualBlockTracker()).totalSize();
+        System.out.printf("Empty tracker: %d bytes%n", empty);
+        System.out.printf("%-8s %-7s %14s %14s %14s%n", "blocks", "state", "bytes/chunk", "bytes/block", "estimate/chunk");
+        for (int blocks : BLOCKS_PER_CHUNK) {
+            VirtualBlockTracker tracker = filled(blocks);
+            print(blocks, "hot", tracker, empty);
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                tracker.freezeChunk(ChunkPos.asLong(chunk, 0));
+            }
+            print(blocks, "frozen", tracker, empty);
+        }
+    }
+
+    private static VirtualBlockTracker filled(int blocksPerChunk) {
+        VirtualBlockTracker tracker = new VirtualBlockTracker();
+        BlockState state = Blocks.STONE.defaultBlockState();
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            for (int i = 0; i < blocksPerChunk; i++) {
+                tracker.registerBlock(new BlockPos(chunk * 16 + (i & 15), i >> 8, (i >> 4) & 15), state);
+            }
+        }
+        return tracker;
+    }
+
+    private static void print(int blocks, String state, VirtualBlockTracker tracker, long empty) {
+        double perChunk = (double) (GraphLayout.parseInstance(tracker).totalSize() - empty) / CHUNKS;
+        System.out.printf("%-8d %-7s %14.1f %14.2f %14.1f%n", blocks, state, perChunk, perChunk / blocks,
+            (double) tracker.estimateMemoryUsage() / CHUNKS);
+    }
+}
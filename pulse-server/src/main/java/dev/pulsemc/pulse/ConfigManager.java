@@ -26,10 +26,36 @@ public class ConfigManager {
     public static int safetyMargin = 64;
     public static List<String> instantPackets = new ArrayList<>();
 
+    // Adaptive batching
+    public static int adaptiveMinBatchBytes = 1460;
+    public static int adaptiveMinFlushInterval = 5;
+    public static int adaptiveMaxFlushInterval = 50;
+
+    // Priority lanes
+    public static boolean lanesEnabled = false;
+    public static int lanesMaxHeldBulkBytes = 2097152;
+    public static List<String> laneCritical = new ArrayList<>();
+    public static List<String> laneCombat = new ArrayList<>();
+    public static List<String> laneMovement = new ArrayList<>();
+    public static List<String> laneBulk = new ArrayList<>();
+
+    // Backpressure
+    public static boolean backpressureEnabled = false;
+    public static int backpressureMaxParkedBytes = 4194304;
+    public static boolean coalesceMovement = false;
+    public static boolean coalesceEntityData = false;
+
     // Optimization
     public static boolean optOffsets = true;
     public static boolean optExplosions = true;
-    public static int optExplosionThreshold = 512;
+    public static int optExplosionThreshold = 64;
+    public static int virtualBlocksMaxFillVolume = 65536;
+    public static boolean virtualAiEnabled = false;
+    public static int virtualAiFullDistance = 16;
+    public static int virtualAiMaxDistance = 64;
+    public static int virtualAiMaxInterval = 20;
+    public static int virtualAiAfkSeconds = 60;
+    public static int virtualAiStepsPerTick = 200;
 
     // Compatibility
     public static boolean emulateEvents = true;
@@ -42,7 +68,7 @@ public class ConfigManager {
     public static boolean moduleCPU = true;
     public static boolean moduleRAM = true;
 
-    public enum BatchingMode { SMART_EXECUTION, STRICT_TICK, INTERVAL }
+    public enum BatchingMode { SMART_EXECUTION, STRICT_TICK, INTERVAL, ADAPTIVE }
 
     /**
      * Loads config and generates error messages
@@ -93,15 +119,92 @@ public class ConfigManager {
                     .validateType(Integer.class)
                     .get();
 
+            adaptiveMinBatchBytes = new Setting<>(config, "batching.adaptive.min-batch-bytes", 1460)
+                    .validateType(Integer.class)
+                    .validate(val -> val >= 512 && val <= maxBatchBytes, "Must be between 512 and max-batch-bytes! Provided: %s")
+                    .get();
+
+            adaptiveMinFlushInterval = new Setting<>(config, "batching.adaptive.min-flush-interval", 5)
+                    .validateType(Integer.class)
+                    .validate(val -> val >= 1, "Flush interval must be at least 1ms!")
+                    .get();
+
+            adaptiveMaxFlushInterval = new Setting<>(config, "batching.adaptive.max-flush-interval", 50)
+                    .validateType(Integer.class)
+                    .validate(val -> val >= adaptiveMinFlushInterval, "Must not be lower than min-flush-interval! Provided: %s")
+                    .get();
+
             instantPackets = config.getStringList("batching.instant-packets");
             if (instantPackets.isEmpty()) instantPackets = List.of("ClientboundHurtAnimationPacket", "ClientboundDamageEventPacket", "ClientboundBlockEntityDataPacket");
 
+            lanesEnabled = new Setting<>(config, "batching.lanes.enabled", false)
+                    .validateType(Boolean.class)
+                    .get();
+
+            lanesMaxHeldBulkBytes = new Setting<>(config, "batching.lanes.max-held-bulk-bytes", 2097152)
+                    .validateType(Integer.class)
+                    .validate(val -> val >= 0, "Must not be negative! Provided: %s")
+                    .get();
+
+            laneCritical = config.getStringList("batching.lanes.critical");
+            if (laneCritical.isEmpty()) laneCritical = List.of("ClientboundPlayerPositionPacket", "ClientboundSetHealthPacket");
+            laneCombat = config.getStringList("batching.lanes.combat");
+            if (laneCombat.isEmpty()) laneCombat = List.of("ClientboundAnimatePacket", "ClientboundEntityEventPacket", "ClientboundSetEntityMotionPacket", "ClientboundExplodePacket");
+            laneMovement = config.getStringList("batching.lanes.movement");
+            if (laneMovement.isEmpty()) laneMovement = List.of("ClientboundMoveEntityPacket$Pos", "ClientboundMoveEntityPacket$PosRot", "ClientboundMoveEntityPacket$Rot", "ClientboundRotateHeadPacket", "ClientboundTeleportEntityPacket", "ClientboundEntityPositionSyncPacket");
+            laneBulk = config.getStringList("batching.lanes.bulk");
+
+            backpressureEnabled = new Setting<>(config, "batching.backpressure.enabled", false)
+                    .validateType(Boolean.class)
+                    .get();
+
+            backpressureMaxParkedBytes = new Setting<>(config, "batching.backpressure.max-parked-bytes", 4194304)
+                    .validateType(Integer.class)
+                    .validate(val -> val >= 0, "Must not be negative! Provided: %s")
+                    .get();
+
+            coalesceMovement = new Setting<>(config, "batching.coalesce.movement", false)
+                    .validateType(Boolean.class)
+                    .get();
+
+            coalesceEntityData = new Setting<>(config, "batching.coalesce.entity-data", false)
+                    .validateType(Boolean.class)
+                    .get();
+
             // Optimizations
             optExplosions = new Setting<>(config, "optimization.explosions.enabled", true)
                     .validateType(Boolean.class)
                     .get();
-            optExplosionThreshold = new Setting<>(config, "optimization.explosions.block-change-threshold", 512)
+            optExplosionThreshold = new Setting<>(config, "optimization.explosions.block-change-threshold", 64)
                     .validateType(Integer.class)
+                    .validate(val -> val >= 1, "Threshold must be at least 1! Provided: %s")
+                    .get();
+            virtualBlocksMaxFillVolume = new Setting<>(config, "optimization.virtual-blocks.max-fill-volume", 65536)
+                    .validateType(Integer.class)
+                    .validate(val -> val >= 1, "Volume must be at least 1! Provided: %s")
+                    .get();
+            virtualAiEnabled = new Setting<>(config, "optimization.virtual-entity-ai.enabled", false)
+                    .validateType(Boolean.class)
+                    .get();
+            virtualAiFullDistance = new Setting<>(config, "optimization.virtual-entity-ai.full-distance", 16)
+                    .validateType(Integer.class)
+                    .validate(val -> val >= 0, "Must not be negative! Provided: %s")
+                    .get();
+            virtualAiMaxDistance = new Setting<>(config, "optimization.virtual-entity-ai.max-distance", 64)
+                    .validateType(Integer.class)
+                    .validate(val -> val > virtualAiFullDistance, "Must be greater than full-distance! Provided: %s")
+                    .get();
+            virtualAiMaxInterval = new Setting<>(config, "optimization.virtual-entity-ai.max-interval", 20)
+                    .validateType(Integer.class)
+                    .validate(val -> val >= 1, "Interval must be at least 1 tick! Provided: %s")
+                    .get();
+            virtualAiAfkSeconds = new Setting<>(config, "optimization.virtual-entity-ai.afk-seconds", 60)
+                    .validateType(Integer.class)
+                    .validate(val -> val >= 0, "Must not be negative! Provided: %s")
+                    .get();
+            virtualAiStepsPerTick = new Setting<>(config, "optimization.virtual-entity-ai.max-ai-steps-per-tick", 200)
+                    .validateType(Integer.class)
+                    .validate(val -> val >= 1, "Budget must be at least 1! Provided: %s")
                     .get();
 
             // Metrics
@@ -123,6 +226,8 @@ public class ConfigManager {
                     .get();
             ignoredPackets = config.getStringList("compatibility.ignored-packets");
 
+            dev.pulsemc.pulse.network.PacketRouter.rebuild();
+
             return !lastLoadReport.isEmpty();
 
         } catch (Exception e) {
@@ -236,6 +341,8 @@ public class ConfigManager {
               # SMART_EXECUTION - (Recommended) flushes when necessary or on tick end.
               # STRICT_TICK     - flushes ONLY on tick end (max throughput, highest latency).
               # INTERVAL        - flushes every X milliseconds (defined below).
+              # ADAPTIVE        - tunes batch limits and flush interval per player
+              #                   from ping, channel congestion and batch sizes.
               mode: SMART_EXECUTION
             
               # Limit of packets in one batch.
@@ -253,6 +360,58 @@ public class ConfigManager {
               # Flush interval for INTERVAL mode (in milliseconds)
               flush-interval: 25
             
+              # Limits for ADAPTIVE mode.
+              # Batch bytes grow from min-batch-bytes up to max-batch-bytes while the link is healthy
+              # and are halved when the client falls behind.
+              adaptive:
+                min-batch-bytes: 1460
+                # Flush interval bounds (in milliseconds), picked from the player's ping.
+                min-flush-interval: 5
+                max-flush-interval: 50
+            
+              # Priority lanes. Batched packets are held until the next flush and written
+              # lane by lane: CRITICAL > COMBAT > MOVEMENT > WORLD > BULK.
+              # Unlisted packets use WORLD. Entity spawns/removals always use CRITICAL, with the packets
+              # held for that entity written before them, and chunk, light and block packets always
+              # use BULK, so ordering stays valid.
+              lanes:
+                enabled: false
+                # BULK is held back while the client can't keep up, until this many bytes pile up.
+                max-held-bulk-bytes: 2097152
+                critical:
+                  - ClientboundPlayerPositionPacket
+                  - ClientboundSetHealthPacket
+                combat:
+                  - ClientboundAnimatePacket
+                  - ClientboundEntityEventPacket
+                  - ClientboundSetEntityMotionPacket
+                  - ClientboundExplodePacket
+                movement:
+                  - ClientboundMoveEntityPacket$Pos
+                  - ClientboundMoveEntityPacket$PosRot
+                  - ClientboundMoveEntityPacket$Rot
+                  - ClientboundRotateHeadPacket
+                  - ClientboundTeleportEntityPacket
+                  - ClientboundEntityPositionSyncPacket
+                bulk: []
+            
+              # Stop feeding clients that can't keep up.
+              # While a client's connection is congested, MOVEMENT, WORLD and BULK packets are parked
+              # (everything batched when lanes are off) and written once it catches up.
+              # Time updates, absolute entity positions and entity metadata keep only the latest value.
+              backpressure:
+                enabled: false
+                # Parked packets are written anyway once this many bytes pile up.
+                max-parked-bytes: 4194304
+            
+              # Merge redundant updates of one entity within a batch before they are sent.
+              coalesce:
+                # Relative moves are summed up, only the latest head rotation and motion are kept.
+                # Absolute position updates drop the moves before them, relative teleports are never merged across.
+                movement: false
+                # Metadata updates of one entity are merged into one packet, the latest value wins per field.
+                entity-data: false
+            
               # Packets that bypass batching (critical for PvP)
               instant-packets:
                 - ClientboundHurtAnimationPacket
@@ -269,9 +428,28 @@ public class ConfigManager {
               # Smart explosion handling
               explosions:
                 enabled: true
-                # Re-send whole chunk if block changes exceed this value
-                # Much faster than sending hundreds of block change packets.
-                block-change-threshold: 512
+                # Minimum block changes in a chunk before a resend is considered.
+                # The whole chunk is re-sent only when it is estimated to be smaller
+                # than the block change packets it replaces.
+                block-change-threshold: 64
+            
+              virtual-blocks:
+                # Largest box a plugin may fill with virtual blocks in one call, in blocks.
+                # Bigger fills are rejected, every block is stored and sent in the same tick.
+                max-fill-volume: 65536
+            
+              # Level of detail for the AI of virtual entities.
+              # Mobs within full-distance of their nearest viewer think every tick. Further away
+              # the AI runs less often, down to once per max-interval ticks at max-distance,
+              # or when every viewer has been idle for afk-seconds (0 disables the idle check).
+              virtual-entity-ai:
+                enabled: false
+                full-distance: 16
+                max-distance: 64
+                max-interval: 20
+                afk-seconds: 60
+                # AI steps shared by all virtual mobs per tick, the most overdue ones go first.
+                max-ai-steps-per-tick: 200
             
             
             # Compatibility & behavior
@@ -94,9 +94,17 @@ public class PulseCommands {
             sender.sendMessage(mm.deserialize(String.format("<grey>PPS (Logical):  <white>%d pkt/s <grey>(Vanilla)", (int) Metrics.ppsLogical)));
             sender.sendMessage(mm.deserialize(String.format("<grey>PPS (Physical): <white>%d pkt/s <#ff2929>(Pulse)", (int) Metrics.ppsPhysical)));
             sender.sendMessage(mm.deserialize(String.format("<grey>Calls Saved:    <white>%d/s <grey>(+%.1f%%)", (int) (Metrics.logicalCounter.get() - Metrics.physicalCounter.get()), efficiency)));
+            sender.sendMessage(mm.deserialize(String.format("<grey>Wake-ups Saved: <white>%d <grey>(tick-end flush grouping)", Metrics.flushWakeupsSaved.get())));
+            sender.sendMessage(mm.deserialize(String.format("<grey>Coalesced:      <white>%d KB <grey>(superseded packets dropped)", Metrics.coalescedBytes.get() / 1024)));
+            sender.sendMessage(mm.deserialize(String.format("<grey>Moves Merged:   <white>%d", Metrics.coalescedMovement.get())));
+            sender.sendMessage(mm.deserialize(String.format("<grey>Data Merged:    <white>%d", Metrics.mergedEntityData.get())));
             sender.sendMessage(" ");
             sender.sendMessage(mm.deserialize(String.format("<grey>Bandwidth:      <green>%.2f<white> kB/s", Metrics.networkSpeedKbs)));
             sender.sendMessage(mm.deserialize(String.format("<grey>Optimized Chunks: <gold>%d <grey>(mass updates prevented)", Metrics.optimizedChunks.get())));
+            sender.sendMessage(mm.deserialize(String.format("<grey>Compacted Chunks: <gold>%d <grey>(~%d KB saved in total)", Metrics.chunkDeltaDecisions.get(), Metrics.chunkResendBytesSaved.get() / 1024)));
+            sender.sendMessage(mm.deserialize(String.format("<grey>Chunk Cache:      <gold>%d <grey>hits / <gold>%d <grey>builds", Metrics.chunkCacheHits.get(), Metrics.chunkCacheMisses.get())));
+            sender.sendMessage(mm.deserialize(String.format("<grey>Shared Results:   <gold>%d <grey>(reused across viewers)", Metrics.sharedBlockDecisions.get())));
+            sender.sendMessage(mm.deserialize(String.format("<grey>Virtual Bundles:  <gold>%d <grey>(chunks sent with virtual blocks)", Metrics.virtualBlockBundles.get())));
             sender.sendMessage(" ");
         }
 
@@ -106,6 +114,7 @@ public class PulseCommands {
             sender.sendMessage(mm.deserialize("<grey>--- [ <white>Pulse CPU Analyzer</white> ] ---"));
             sender.sendMessage(mm.deserialize(String.format("<grey>Current Usage: %.2f%%", Metrics.cpuUsage)));
             sender.sendMessage(mm.deserialize(String.format("<grey>Vanilla Est:   %.2f%%", Metrics.vanillaCpuEst)));
+            sender.sendMessage(mm.deserialize(String.format("<grey>Virtual AI:    <white>%d <grey>steps skipped", Metrics.virtualAiStepsSkipped.get())));
             sender.sendMessage(" ");
             sender.sendMessage(mm.deserialize(String.format("<white>Pulse Efficiency: <#ff2929>-%.3f%% Total Load", diff)));
             sender.sendMessage(" ");
@@ -24,6 +24,18 @@ public class Metrics {
 
     public static final AtomicLong optimizedChunks = new AtomicLong(0);
     public static final AtomicLong totalBytesSent = new AtomicLong(0);
+    // Chunk optimization: chunks sent as compacted section updates, estimated bytes saved overall
+    public static final AtomicLong chunkDeltaDecisions = new AtomicLong(0);
+    public static final AtomicLong chunkResendBytesSaved = new AtomicLong(0);
+    // Full chunk packets reused from the tick-end cache versus built
+    public static final AtomicLong chunkCacheHits = new AtomicLong(0);
+    public static final AtomicLong chunkCacheMisses = new AtomicLong(0);
+    // Chunk optimization results reused from another viewer of the same chunk
+    public static final AtomicLong sharedBlockDecisions = new AtomicLong(0);
+    // Chunk and section updates bundled with the virtual blocks they overwrite
+    public static final AtomicLong virtualBlockBundles = new AtomicLong(0);
+    // Virtual mob AI steps skipped by the level of detail scheduler
+    public static final AtomicLong virtualAiStepsSkipped = new AtomicLong(0);
 
     public static double ppsLogical = 0;
     public static double ppsPhysical = 0;
@@ -37,6 +49,16 @@ public class Metrics {
     public static final AtomicLong flushReasonTick = new AtomicLong(0);
     public static final AtomicLong flushReasonInstant = new AtomicLong(0);
 
+    // Event loop wake-ups avoided by the tick-end flush coordinator
+    public static final AtomicLong flushWakeupsSaved = new AtomicLong(0);
+
+    // Estimated bytes of superseded packets dropped by coalescing
+    public static final AtomicLong coalescedBytes = new AtomicLong(0);
+    // Entity movement packets merged into a later one
+    public static final AtomicLong coalescedMovement = new AtomicLong(0);
+    // Entity metadata packets merged into a later one
+    public static final AtomicLong mergedEntityData = new AtomicLong(0);
+
     private static ScheduledFuture<?> currentTask;
 
 
@@ -0,0 +1,139 @@
+package dev.pulsemc.pulse.network;
+
+import dev.pulsemc.pulse.ConfigManager;
+
+import java.util.Arrays;
+
+/**
+ * Per-player batch limits for {@link ConfigManager.BatchingMode#ADAPTIVE}.
+ * <p>
+ * Works like TCP's AIMD: limits grow by a fixed step while the client keeps up,
+ * and are halved when the channel stops being writable or a keep-alive sample comes
+ * back well above the best ping of the last minutes. Limits are halved at most once
+ * per round trip, so a congested client gets time to drain before the next cut.
+ * The flush interval follows the smoothed ping, since a client 250 ms away gains
+ * nothing from 5 ms flushes.
+ * <p>
+ * Updated from the server thread on every flush.
+ */
+public class AdaptiveBatchController {
+    private static final int BYTES_STEP = 1460;
+    private static final int SIZE_STEP = 16;
+    private static final int MIN_BATCH_SIZE = 16;
+    // The best ping is the minimum over the last MIN_RTT_BUCKETS buckets of MIN_RTT_BUCKET_MILLIS each
+    private static final int MIN_RTT_BUCKETS = 4;
+    private static final long MIN_RTT_BUCKET_MILLIS = 30_000;
+
+    private int maxBatchBytes;
+    private int maxBatchSize;
+    private volatile int flushInterval;
+
+    private double smoothedRtt = -1;
+    private int lastRtt = 0;
+    private final int[] minRttBuckets = new int[MIN_RTT_BUCKETS];
+    private int minRttBucket = 0;
+    private long minRttBucketStart = 0;
+    private long lastDecrease = 0;
+    private boolean writable = true;
+
+    public AdaptiveBatchController() {
+        reset();
+    }
+
+    /**
+     * Drops everything learned so far and starts from the configured minimums.
+     */
+    public void reset() {
+        this.maxBatchBytes = Math.min(ConfigManager.adaptiveMinBatchBytes, ConfigManager.maxBatchBytes);
+        this.maxBatchSize = Math.min(MIN_BATCH_SIZE * 4, ConfigManager.maxBatchSize);
+        this.flushInterval = ConfigManager.adaptiveMaxFlushInterval;
+        this.smoothedRtt = -1;
+        this.lastRtt = 0;
+        Arrays.fill(this.minRttBuckets, Integer.MAX_VALUE);
+        this.minRttBucket = 0;
+        this.minRttBucketStart = 0;
+        this.lastDecrease = 0;
+        this.writable = true;
+    }
+
+    /**
+     * Feeds the result of a flush into the controller.
+     *
+     * @param bytes estimated bytes in the flushed batch
+     * @param packets packets in the flushed batch
+     * @param rtt current keep-alive latency in milliseconds, 0 if not measured yet
+     * @param channelWritable whether the channel is below its high-water mark
+     */
+    public void onFlush(int bytes, int packets, int rtt, boolean channelWritable) {
+        long now = System.nanoTime() / 1_000_000;
+        rotateMinRtt(now);
+
+        // The latency only changes when a keep-alive comes back, so each sample is counted once
+        boolean newSample = rtt > 0 && rtt != lastRtt;
+        if (newSample) {
+            lastRtt = rtt;
+            smoothedRtt = smoothedRtt < 0 ? rtt : smoothedRtt * 0.875 + rtt * 0.125;
+            minRttBuckets[minRttBucket] = Math.min(minRttBuckets[minRttBucket], rtt);
+        }
+
+        boolean lostWritability = writable && !channelWritable;
+        boolean rttInflated = lastRtt > 0 && lastRtt > minRtt() * 2.0 + 20;
+        writable = channelWritable;
+
+        if (lostWritability || (newSample && rttInflated)) {
+            // Multiplicative decrease, once per round trip
+            if (now - lastDecrease >= Math.max(smoothedRtt, ConfigManager.adaptiveMinFlushInterval)) {
+                lastDecrease = now;
+                maxBatchBytes = Math.max(ConfigManager.adaptiveMinBatchBytes, maxBatchBytes / 2);
+                maxBatchSize = Math.max(MIN_BATCH_SIZE, maxBatchSize / 2);
+            }
+        } else if (channelWritable && !rttInflated) {
+            // Additive increase, only when the batch actually hit the limit
+            if (bytes >= maxBatchBytes - ConfigManager.safetyMargin) {
+                maxBatchBytes = Math.min(ConfigManager.maxBatchBytes, maxBatchBytes + BYTES_STEP);
+            }
+            if (packets >= maxBatchSize) {
+                maxBatchSize = Math.min(ConfigManager.maxBatchSize, maxBatchSize + SIZE_STEP);
+            }
+        }
+
+        int target = smoothedRtt < 0 ? ConfigManager.adaptiveMaxFlushInterval : (int) (smoothedRtt / 8);
+        flushInterval = Math.max(ConfigManager.adaptiveMinFlushInterval, Math.min(ConfigManager.adaptiveMaxFlushInterval, target));
+    }
+
+    private int minRtt() {
+        int min = Integer.MAX_VALUE;
+        for (int bucketMin : minRttBuckets) {
+            min = Math.min(min, bucketMin);
+        }
+        return min;
+    }
+
+    /**
+     * Starts a new bucket once the current one is full, forgetting the oldest. The new bucket
+     * starts with the latest sample, so a steady ping is never forgotten.
+     */
+    private void rotateMinRtt(long now) {
+        if (minRttBucketStart == 0) {
+            minRttBucketStart = now;
+            return;
+        }
+        if (now - minRttBucketStart < MIN_RTT_BUCKET_MILLIS) return;
+
+        minRttBucketStart = now;
+        minRttBucket = (minRttBucket + 1) % MIN_RTT_BUCKETS;
+        minRttBuckets[minRttBucket] = lastRtt > 0 ? lastRtt : Integer.MAX_VALUE;
+    }
+
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getFlushInterval() {
+        return flushInterval;
+    }
+}
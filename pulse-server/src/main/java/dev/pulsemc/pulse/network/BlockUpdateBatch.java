@@ -0,0 +1,125 @@
+package dev.pulsemc.pulse.network;
+
+import io.netty.channel.ChannelFutureListener;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundBlockEntityDataPacket;
+import net.minecraft.network.protocol.game.ClientboundBlockUpdatePacket;
+import net.minecraft.network.protocol.game.ClientboundSectionBlocksUpdatePacket;
+import net.minecraft.world.level.ChunkPos;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Block updates waiting for the explosion optimization.
+ * <p>
+ * Everything is kept in arrays and pooled groups that survive between flushes, so a
+ * batch of thousands of updates doesn't allocate per packet or box chunk keys.
+ * Server thread only.
+ */
+final class BlockUpdateBatch {
+    private static final int INITIAL_CAPACITY = 64;
+
+    Packet<?>[] packets = new Packet<?>[INITIAL_CAPACITY];
+    @Nullable ChannelFutureListener[] listeners = new ChannelFutureListener[INITIAL_CAPACITY];
+    int size = 0;
+
+    private final Long2ObjectOpenHashMap<ChunkGroup> groups = new Long2ObjectOpenHashMap<>();
+    private final List<ChunkGroup> ordered = new ArrayList<>();
+    private final ArrayDeque<ChunkGroup> pool = new ArrayDeque<>();
+
+    /**
+     * Updates of one chunk, as indices into the batch arrays.
+     */
+    static final class ChunkGroup {
+        long chunkKey;
+        int[] indices = new int[16];
+        int size;
+        int changes;
+        int deltaBytes;
+
+        private void add(int index) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+            }
+            indices[size++] = index;
+        }
+    }
+
+    void add(Packet<?> packet, @Nullable ChannelFutureListener listener) {
+        if (size == packets.length) {
+            packets = Arrays.copyOf(packets, size * 2);
+            listeners = Arrays.copyOf(listeners, size * 2);
+        }
+        packets[size] = packet;
+        listeners[size] = listener;
+        size++;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Groups the updates by chunk, in order of first appearance.
+     */
+    List<ChunkGroup> groupByChunk() {
+        for (int i = 0; i < size; i++) {
+            Packet<?> packet = packets[i];
+            long key = chunkKey(packet);
+
+            ChunkGroup group = groups.get(key);
+            if (group == null) {
+                group = pool.isEmpty() ? new ChunkGroup() : pool.poll();
+                group.chunkKey = key;
+                groups.put(key, group);
+                ordered.add(group);
+            }
+
+            group.add(i);
+            group.changes += packet instanceof ClientboundSectionBlocksUpdatePacket section ? section.positions.length : 1;
+            group.deltaBytes += PacketSizeEstimator.estimate(packet);
+        }
+        return ordered;
+    }
+
+    boolean hasSendListener(ChunkGroup group) {
+        for (int i = 0; i < group.size; i++) {
+            if (listeners[group.indices[i]] != null) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Drops all updates and returns the groups to the pool, keeping the arrays.
+     */
+    void clear() {
+        Arrays.fill(packets, 0, size, null);
+        Arrays.fill(listeners, 0, size, null);
+        size = 0;
+
+        for (ChunkGroup group : ordered) {
+            group.size = 0;
+            group.changes = 0;
+            group.deltaBytes = 0;
+            pool.add(group);
+        }
+        ordered.clear();
+        groups.clear();
+    }
+
+    static long chunkKey(Packet<?> packet) {
+        if (packet instanceof ClientboundBlockUpdatePacket blockPacket) {
+            return ChunkPos.asLong(blockPacket.getPos());
+        } else if (packet instanceof ClientboundSectionBlocksUpdatePacket sectionPacket) {
+            return sectionPacket.sectionPos.chunk().toLong();
+        } else if (packet instanceof ClientboundBlockEntityDataPacket dataPacket) {
+            return ChunkPos.asLong(dataPacket.getPos());
+        }
+        return 0;
+    }
+}
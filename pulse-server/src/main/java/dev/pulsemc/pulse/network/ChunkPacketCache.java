@@ -0,0 +1,62 @@
+package dev.pulsemc.pulse.network;
+
+import dev.pulsemc.pulse.metrics.Metrics;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.network.protocol.game.ClientboundLevelChunkWithLightPacket;
+import net.minecraft.world.level.chunk.LevelChunk;
+
+import java.util.Map;
+
+/**
+ * Shares full chunk packets built by the explosion optimization between all viewers.
+ * <p>
+ * The cache is only open while {@link PulseFlushCoordinator} flushes at tick end. The server
+ * doesn't tick during that pass, so a packet built for one player is valid for every other
+ * one without tracking chunk versions. Plugins may still change blocks from a
+ * {@code PulseChunkOptimizationEvent} handler, so the cache is emptied after each such event.
+ * Outside of the pass every call builds a fresh packet.
+ * <p>
+ * The packet itself is shared rather than its encoded bytes: it already holds the
+ * serialized sections and light, and encoding it per channel keeps compression and
+ * encryption in the regular pipeline. Server thread only.
+ */
+public final class ChunkPacketCache {
+    private static final Map<LevelChunk, ClientboundLevelChunkWithLightPacket> packets = new Reference2ObjectOpenHashMap<>();
+    private static boolean open = false;
+
+    private ChunkPacketCache() {}
+
+    static void open() {
+        open = true;
+    }
+
+    static void close() {
+        open = false;
+        packets.clear();
+    }
+
+    /**
+     * Drops every cached packet, for when plugin code ran and may have changed the world.
+     */
+    static void invalidate() {
+        packets.clear();
+    }
+
+    /**
+     * @return a full chunk packet for the chunk, shared with other viewers while the cache is open
+     */
+    public static ClientboundLevelChunkWithLightPacket get(LevelChunk chunk) {
+        if (open) {
+            ClientboundLevelChunkWithLightPacket cached = packets.get(chunk);
+            if (cached != null) {
+                Metrics.chunkCacheHits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        Metrics.chunkCacheMisses.incrementAndGet();
+        ClientboundLevelChunkWithLightPacket packet = new ClientboundLevelChunkWithLightPacket(chunk, chunk.getLevel().getLightEngine(), null, null);
+        if (open) packets.put(chunk, packet);
+        return packet;
+    }
+}
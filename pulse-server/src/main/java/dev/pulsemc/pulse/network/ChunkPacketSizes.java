@@ -0,0 +1,57 @@
+package dev.pulsemc.pulse.network;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMaps;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.network.protocol.game.ClientboundLevelChunkWithLightPacket;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+
+/**
+ * Expected encoded size of full chunk packets, used to choose between block deltas and a chunk resend.
+ * <p>
+ * Sizes are learned from the encoder per chunk position. Chunks that were never encoded get
+ * an estimate from their section palettes plus one light array per section. Keys ignore the
+ * dimension, a stale size from another world only skews a single decision.
+ */
+public final class ChunkPacketSizes {
+    private static final int MAX_ENTRIES = 65536;
+    // Light array plus its length prefix
+    private static final int LIGHT_SECTION_BYTES = 2048 + 3;
+
+    private static final Long2IntMap sizes;
+
+    static {
+        Long2IntOpenHashMap map = new Long2IntOpenHashMap();
+        map.defaultReturnValue(-1);
+        sizes = Long2IntMaps.synchronize(map);
+    }
+
+    private ChunkPacketSizes() {}
+
+    /**
+     * Records the encoded size of a chunk packet. Called from the packet encoder.
+     */
+    public static void record(ClientboundLevelChunkWithLightPacket packet, int bytes) {
+        synchronized (sizes) {
+            if (sizes.size() >= MAX_ENTRIES) sizes.clear();
+            sizes.put(ChunkPos.asLong(packet.getX(), packet.getZ()), bytes);
+        }
+    }
+
+    /**
+     * @return the expected encoded size of a full chunk packet for this chunk in bytes
+     */
+    public static int estimate(LevelChunk chunk) {
+        int cached = sizes.get(chunk.getPos().toLong());
+        if (cached > 0) return cached;
+
+        LevelChunkSection[] sections = chunk.getSections();
+        int bytes = 0;
+        for (LevelChunkSection section : sections) {
+            bytes += section.getSerializedSize();
+        }
+        return bytes + sections.length * LIGHT_SECTION_BYTES;
+    }
+}
@@ -0,0 +1,149 @@
+package dev.pulsemc.pulse.network;
+
+import dev.pulsemc.pulse.ConfigManager;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timer wheel driving timed flushes for INTERVAL and ADAPTIVE batching.
+ * <p>
+ * There is one wheel per Netty event loop, so a buffer's timed flush runs on its
+ * own channel's thread. Scheduling is O(1), and every buffer that falls into the
+ * same slot is flushed by a single wake-up. The wheel stops ticking while it has
+ * nothing scheduled. Buffers whose channel has closed, or whose listener was replaced,
+ * are dropped on their next turn, so a missed {@link PulseBuffer#stop()} cannot leak a task.
+ * <p>
+ * The tick follows the configured flush interval. When a reload changes it, the wheel is
+ * re-timed on its next insert.
+ */
+public final class IntervalFlushWheel {
+    private static final int WHEEL_SIZE = 512;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private static final Map<EventLoop, IntervalFlushWheel> wheels = new ConcurrentHashMap<>();
+
+    private final EventLoop eventLoop;
+    private int tickMillis;
+
+    // Only touched from the wheel's own event loop
+    @SuppressWarnings("unchecked")
+    private final List<Timeout>[] slots = new List[WHEEL_SIZE];
+    private int cursor = 0;
+    private int size = 0;
+    private ScheduledFuture<?> ticker;
+
+    private IntervalFlushWheel(EventLoop eventLoop) {
+        this.eventLoop = eventLoop;
+        this.tickMillis = resolution();
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            slots[i] = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Handle for a buffer registered in a wheel.
+     */
+    public static final class Timeout {
+        private final PulseBuffer buffer;
+        private final Channel channel;
+        private int rounds;
+        private volatile boolean cancelled;
+
+        private Timeout(PulseBuffer buffer, Channel channel) {
+            this.buffer = buffer;
+            this.channel = channel;
+        }
+
+        public void cancel() {
+            this.cancelled = true;
+        }
+    }
+
+    /**
+     * Starts timed flushes for the buffer on the wheel of the channel's event loop.
+     */
+    public static Timeout schedule(PulseBuffer buffer, Channel channel) {
+        Timeout timeout = new Timeout(buffer, channel);
+        IntervalFlushWheel wheel = wheels.computeIfAbsent(channel.eventLoop(), IntervalFlushWheel::new);
+        wheel.eventLoop.execute(() -> wheel.insert(timeout));
+        return timeout;
+    }
+
+    private static int resolution() {
+        int resolution = ConfigManager.batchingMode == ConfigManager.BatchingMode.ADAPTIVE
+                ? ConfigManager.adaptiveMinFlushInterval
+                : ConfigManager.flushInterval;
+        return Math.max(1, resolution);
+    }
+
+    private void insert(Timeout timeout) {
+        if (timeout.cancelled) return;
+        if (tickMillis != resolution()) retime();
+
+        int ticks = Math.max(1, (timeout.buffer.getFlushInterval() + tickMillis - 1) / tickMillis);
+        timeout.rounds = (ticks - 1) / WHEEL_SIZE;
+        slots[(cursor + ticks) & MASK].add(timeout);
+        size++;
+
+        if (ticker == null) {
+            ticker = eventLoop.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void advance() {
+        cursor = (cursor + 1) & MASK;
+        List<Timeout> slot = slots[cursor];
+        if (!slot.isEmpty()) {
+            Timeout[] due = slot.toArray(new Timeout[0]);
+            slot.clear();
+            size -= due.length;
+
+            for (Timeout timeout : due) {
+                if (timeout.cancelled || !timeout.channel.isOpen() || !timeout.buffer.isActive()) continue;
+
+                if (timeout.rounds > 0) {
+                    timeout.rounds--;
+                    slot.add(timeout);
+                    size++;
+                    continue;
+                }
+
+                timeout.buffer.flushOnEventLoop();
+                insert(timeout);
+            }
+        }
+
+        if (size == 0 && ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+    }
+
+    /**
+     * Switches to the configured tick and schedules everything again from now on.
+     */
+    private void retime() {
+        List<Timeout> pending = new ArrayList<>(size);
+        for (List<Timeout> slot : slots) {
+            pending.addAll(slot);
+            slot.clear();
+        }
+        size = 0;
+        if (ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+
+        tickMillis = resolution();
+        for (Timeout timeout : pending) {
+            insert(timeout);
+        }
+    }
+}
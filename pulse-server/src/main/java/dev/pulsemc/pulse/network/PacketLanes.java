@@ -0,0 +1,413 @@
+package dev.pulsemc.pulse.network;
+
+import dev.pulsemc.pulse.ConfigManager;
+import dev.pulsemc.pulse.metrics.Metrics;
+import io.netty.channel.ChannelFutureListener;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.network.Connection;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundAddEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundAnimatePacket;
+import net.minecraft.network.protocol.game.ClientboundBundlePacket;
+import net.minecraft.network.protocol.game.ClientboundDamageEventPacket;
+import net.minecraft.network.protocol.game.ClientboundEntityPositionSyncPacket;
+import net.minecraft.network.protocol.game.ClientboundHurtAnimationPacket;
+import net.minecraft.network.protocol.game.ClientboundMoveEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundRemoveEntitiesPacket;
+import net.minecraft.network.protocol.game.ClientboundRotateHeadPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEntityMotionPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEquipmentPacket;
+import net.minecraft.network.protocol.game.ClientboundSetTimePacket;
+import net.minecraft.network.protocol.game.ClientboundTakeItemEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundTeleportEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundUpdateAttributesPacket;
+import net.minecraft.network.syncher.SynchedEntityData;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Packets held by a {@link PulseBuffer} until the next flush, one queue per {@link PacketRouter.Lane}.
+ * <p>
+ * Lanes are written in priority order, so combat and movement updates overtake bulk
+ * world data queued earlier in the same batch. Order within a lane is kept.
+ * <p>
+ * With backpressure enabled, packets that only carry the latest value of some state
+ * (time, absolute entity position, entity metadata) replace the held packet they
+ * supersede instead of piling up behind a slow client. Entity data coalescing does the
+ * same for metadata alone. Movement coalescing merges relative moves of one entity and
+ * keeps only the latest head rotation and motion. Relative teleports are never merged across.
+ * <p>
+ * With lanes enabled, held packets are also indexed by the entity they are about. Before an
+ * entity is spawned or removed its held packets are written, so a move or pickup queued in a
+ * lower lane never reaches the client after the entity is gone. Server thread only.
+ */
+final class PacketLanes {
+    private static final PacketRouter.Lane[] LANES = PacketRouter.Lane.values();
+
+    // Coalescing key kinds, the entity id goes into the lower half
+    private static final long KIND_MASK = 0xFFFFFFFF00000000L;
+    private static final long KEY_TIME = 1L << 32;
+    private static final long KEY_POSITION = 2L << 32;
+    private static final long KEY_DATA = 3L << 32;
+    private static final long KEY_MOVE = 4L << 32;
+    private static final long KEY_HEAD = 5L << 32;
+    private static final long KEY_MOTION = 6L << 32;
+    private static final long KEY_BARRIER = 7L << 32;
+
+    private static final int NO_ENTITY = Integer.MIN_VALUE;
+    private static final Comparator<Held> ADD_ORDER = Comparator.comparingLong(entry -> entry.sequence);
+
+    /**
+     * A held packet. Superseded entries are emptied in place and skipped on drain.
+     */
+    private static final class Held {
+        private @Nullable Packet<?> packet;
+        private final @Nullable ChannelFutureListener listener;
+        private final int lane;
+        private final int bytes;
+        private final long sequence;
+
+        private Held(Packet<?> packet, @Nullable ChannelFutureListener listener, int lane, long sequence) {
+            this.packet = packet;
+            this.listener = listener;
+            this.lane = lane;
+            this.bytes = PacketSizeEstimator.estimate(packet);
+            this.sequence = sequence;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Held>[] queues = new ArrayDeque[LANES.length];
+    private final long[] laneBytes = new long[LANES.length];
+    private final Long2ObjectOpenHashMap<Held> latest = new Long2ObjectOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<List<Held>> byEntity = new Int2ObjectOpenHashMap<>();
+    // Reused while handling one spawn or removal
+    private final IntArrayList lifecycleIds = new IntArrayList();
+    private final List<Held> entityWrites = new ArrayList<>();
+    private long sequence = 0;
+    private int held = 0;
+
+    PacketLanes() {
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+    }
+
+    void add(PacketRouter.Lane lane, Packet<?> packet, @Nullable ChannelFutureListener listener) {
+        long key = coalesceKey(packet);
+        if (key != 0) {
+            if (listener == null) {
+                packet = coalesce(key, packet);
+            } else {
+                // Never drop a packet whose listener must fire, but don't merge across it either
+                forget(key);
+            }
+        } else if (ConfigManager.coalesceMovement || ConfigManager.backpressureEnabled || ConfigManager.coalesceEntityData) {
+            forgetRespawned(packet);
+        }
+
+        Held entry = new Held(packet, listener, lane.ordinal(), sequence++);
+        queues[entry.lane].add(entry);
+        laneBytes[entry.lane] += entry.bytes;
+        held++;
+
+        // Without lanes nothing is reordered, so there is nothing to write early
+        if (ConfigManager.lanesEnabled) {
+            int entity = entityId(packet);
+            if (entity != NO_ENTITY) byEntity.computeIfAbsent(entity, id -> new ArrayList<>(4)).add(entry);
+        }
+
+        if (key != 0 && listener == null && (key & KIND_MASK) != KEY_BARRIER) {
+            latest.put(key, entry);
+        }
+    }
+
+    /**
+     * @return whether any feature that needs packets held until flush is enabled. Never while
+     * Pulse is disabled, everything is passed through then
+     */
+    static boolean isEnabled() {
+        return ConfigManager.enabled && (ConfigManager.lanesEnabled || ConfigManager.backpressureEnabled
+                || ConfigManager.coalesceMovement || ConfigManager.coalesceEntityData);
+    }
+
+    boolean isEmpty() {
+        return held == 0;
+    }
+
+    /**
+     * Drops the held packet the new one supersedes.
+     *
+     * @return the packet to hold, merged with the dropped one where needed
+     */
+    private Packet<?> coalesce(long key, Packet<?> packet) {
+        long kind = key & KIND_MASK;
+        long entity = key & ~KIND_MASK;
+
+        if (kind == KEY_BARRIER) {
+            forget(key);
+            return packet;
+        }
+        if (kind == KEY_POSITION) {
+            // An absolute position also replaces the relative moves before it
+            drop(latest.remove(KEY_MOVE | entity));
+        }
+
+        Held previous = latest.remove(key);
+        if (previous == null || previous.packet == null) return packet;
+
+        if (kind == KEY_MOVE) {
+            ClientboundMoveEntityPacket merged = mergeMoves((ClientboundMoveEntityPacket) previous.packet, (ClientboundMoveEntityPacket) packet);
+            // Deltas too large for one packet start a new chain
+            if (merged == null) return packet;
+            drop(previous);
+            Metrics.coalescedMovement.incrementAndGet();
+            return merged;
+        }
+
+        Packet<?> superseded = previous.packet;
+        drop(previous);
+        if (kind == KEY_DATA) {
+            Metrics.mergedEntityData.incrementAndGet();
+        } else if (kind != KEY_TIME) {
+            Metrics.coalescedMovement.incrementAndGet();
+        }
+
+        if (packet instanceof ClientboundSetEntityDataPacket data) {
+            return mergeEntityData((ClientboundSetEntityDataPacket) superseded, data);
+        }
+        return packet;
+    }
+
+    private void drop(@Nullable Held entry) {
+        if (entry == null || entry.packet == null) return;
+
+        entry.packet = null;
+        laneBytes[entry.lane] -= entry.bytes;
+        Metrics.coalescedBytes.addAndGet(entry.bytes);
+    }
+
+    // Stops later packets from coalescing with anything held so far
+    private void forget(long key) {
+        long entity = key & ~KIND_MASK;
+        long kind = key & KIND_MASK;
+        if (kind == KEY_BARRIER || kind == KEY_POSITION || kind == KEY_MOVE) {
+            latest.remove(KEY_POSITION | entity);
+            latest.remove(KEY_MOVE | entity);
+        } else {
+            latest.remove(key);
+        }
+    }
+
+    /**
+     * A removed or spawned entity starts over, so nothing held for its id may be merged
+     * into the updates of the new instance.
+     */
+    private void forgetRespawned(Packet<?> packet) {
+        lifecycleIds.clear();
+        collectLifecycleIds(packet, lifecycleIds);
+        for (int i = 0; i < lifecycleIds.size(); i++) {
+            forgetEntity(lifecycleIds.getInt(i) & 0xFFFFFFFFL);
+        }
+    }
+
+    /**
+     * Writes the held packets of every entity the spawn or removal is about, in the order they
+     * were added, ahead of everything else still held. BULK is never written here, so parked
+     * chunk data stays parked.
+     */
+    void writeEntities(Connection connection, Packet<?> lifecycle) {
+        if (byEntity.isEmpty()) return;
+
+        lifecycleIds.clear();
+        collectLifecycleIds(lifecycle, lifecycleIds);
+        for (int i = 0; i < lifecycleIds.size(); i++) {
+            List<Held> entries = byEntity.remove(lifecycleIds.getInt(i));
+            if (entries == null) continue;
+            for (Held entry : entries) {
+                if (entry.packet != null && entry.lane != PacketRouter.Lane.BULK.ordinal()) entityWrites.add(entry);
+            }
+        }
+        if (entityWrites.isEmpty()) return;
+
+        if (entityWrites.size() > 1) entityWrites.sort(ADD_ORDER);
+        for (Held entry : entityWrites) {
+            connection.send(entry.packet, entry.listener, false);
+            // Left in its queue as an empty entry, like a superseded one
+            entry.packet = null;
+            laneBytes[entry.lane] -= entry.bytes;
+        }
+        entityWrites.clear();
+    }
+
+    private static void collectLifecycleIds(Packet<?> packet, IntArrayList into) {
+        if (packet instanceof ClientboundRemoveEntitiesPacket remove) {
+            into.addAll(remove.getEntityIds());
+        } else if (packet instanceof ClientboundAddEntityPacket add) {
+            into.add(add.getId());
+        } else if (packet instanceof ClientboundBundlePacket bundle) {
+            for (Packet<?> part : bundle.subPackets()) {
+                if (part instanceof ClientboundAddEntityPacket || part instanceof ClientboundRemoveEntitiesPacket) {
+                    collectLifecycleIds(part, into);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the entity a per-entity packet is about, or {@link #NO_ENTITY}
+     */
+    private static int entityId(Packet<?> packet) {
+        if (packet instanceof ClientboundMoveEntityPacket move) return move.entityId;
+        if (packet instanceof ClientboundEntityPositionSyncPacket sync) return sync.id();
+        if (packet instanceof ClientboundTeleportEntityPacket teleport) return teleport.id();
+        if (packet instanceof ClientboundRotateHeadPacket head) return head.entityId;
+        if (packet instanceof ClientboundSetEntityMotionPacket motion) return motion.id();
+        if (packet instanceof ClientboundSetEntityDataPacket data) return data.id();
+        if (packet instanceof ClientboundSetEquipmentPacket equipment) return equipment.getEntity();
+        if (packet instanceof ClientboundUpdateAttributesPacket attributes) return attributes.getEntityId();
+        if (packet instanceof ClientboundAnimatePacket animate) return animate.getId();
+        if (packet instanceof ClientboundHurtAnimationPacket hurt) return hurt.id();
+        if (packet instanceof ClientboundDamageEventPacket damage) return damage.entityId();
+        if (packet instanceof ClientboundTakeItemEntityPacket take) return take.getItemId();
+        return NO_ENTITY;
+    }
+
+    private void forgetEntity(long entity) {
+        latest.remove(KEY_POSITION | entity);
+        latest.remove(KEY_MOVE | entity);
+        latest.remove(KEY_HEAD | entity);
+        latest.remove(KEY_MOTION | entity);
+        // Metadata from before would overwrite the fresh values of the spawn
+        latest.remove(KEY_DATA | entity);
+    }
+
+    private static long coalesceKey(Packet<?> packet) {
+        boolean movement = ConfigManager.coalesceMovement;
+        boolean backpressure = ConfigManager.backpressureEnabled;
+        boolean entityData = backpressure || ConfigManager.coalesceEntityData;
+        if (!movement && !entityData) return 0;
+
+        if (packet instanceof ClientboundMoveEntityPacket move) {
+            return movement ? KEY_MOVE | (move.entityId & 0xFFFFFFFFL) : 0;
+        }
+        if (packet instanceof ClientboundSetEntityDataPacket data) {
+            return entityData ? KEY_DATA | (data.id() & 0xFFFFFFFFL) : 0;
+        }
+        if (!movement && !backpressure) return 0;
+
+        if (packet instanceof ClientboundEntityPositionSyncPacket sync) {
+            return KEY_POSITION | (sync.id() & 0xFFFFFFFFL);
+        }
+        if (packet instanceof ClientboundTeleportEntityPacket teleport) {
+            return (teleport.relatives().isEmpty() ? KEY_POSITION : KEY_BARRIER) | (teleport.id() & 0xFFFFFFFFL);
+        }
+        if (movement && packet instanceof ClientboundRotateHeadPacket head) {
+            return KEY_HEAD | (head.entityId & 0xFFFFFFFFL);
+        }
+        if (movement && packet instanceof ClientboundSetEntityMotionPacket motion) {
+            return KEY_MOTION | (motion.id() & 0xFFFFFFFFL);
+        }
+        if (backpressure && packet instanceof ClientboundSetTimePacket) {
+            return KEY_TIME;
+        }
+        return 0;
+    }
+
+    /**
+     * Merges two relative moves of one entity into one, the newer rotation and ground state win.
+     *
+     * @return the merged packet, or null if the summed deltas don't fit
+     */
+    static @Nullable ClientboundMoveEntityPacket mergeMoves(ClientboundMoveEntityPacket older, ClientboundMoveEntityPacket newer) {
+        int xa = older.xa + newer.xa;
+        int ya = older.ya + newer.ya;
+        int za = older.za + newer.za;
+        if (xa != (short) xa || ya != (short) ya || za != (short) za) return null;
+
+        boolean hasPos = older.hasPos || newer.hasPos;
+        boolean hasRot = older.hasRot || newer.hasRot;
+        byte yRot = newer.hasRot ? newer.yRot : older.yRot;
+        byte xRot = newer.hasRot ? newer.xRot : older.xRot;
+
+        if (hasPos && hasRot) {
+            return new ClientboundMoveEntityPacket.PosRot(newer.entityId, (short) xa, (short) ya, (short) za, yRot, xRot, newer.onGround);
+        }
+        if (hasPos) {
+            return new ClientboundMoveEntityPacket.Pos(newer.entityId, (short) xa, (short) ya, (short) za, newer.onGround);
+        }
+        return new ClientboundMoveEntityPacket.Rot(newer.entityId, yRot, xRot, newer.onGround);
+    }
+
+    /**
+     * Merges two metadata packets of one entity, the newer value wins per accessor.
+     */
+    static ClientboundSetEntityDataPacket mergeEntityData(ClientboundSetEntityDataPacket older, ClientboundSetEntityDataPacket newer) {
+        List<SynchedEntityData.DataValue<?>> merged = new ArrayList<>(older.packedItems().size() + newer.packedItems().size());
+        outer:
+        for (SynchedEntityData.DataValue<?> value : older.packedItems()) {
+            for (SynchedEntityData.DataValue<?> update : newer.packedItems()) {
+                if (update.id() == value.id()) continue outer;
+            }
+            merged.add(value);
+        }
+        merged.addAll(newer.packedItems());
+        return new ClientboundSetEntityDataPacket(newer.id(), merged);
+    }
+
+    /**
+     * Writes held packets to the connection in lane order, without flushing.
+     * <p>
+     * While the channel is unwritable the deferrable lanes stay held: BULK with lanes,
+     * everything from MOVEMENT down with backpressure. Once more bytes than the
+     * configured limit are held they are written anyway.
+     *
+     * @param unwritable whether the channel is above its high-water mark
+     */
+    void drain(Connection connection, boolean unwritable) {
+        if (held == 0) return;
+
+        int firstDeferred = LANES.length;
+        if (unwritable) {
+            int candidate = ConfigManager.backpressureEnabled ? PacketRouter.Lane.MOVEMENT.ordinal() : PacketRouter.Lane.BULK.ordinal();
+            long limit = ConfigManager.backpressureEnabled ? ConfigManager.backpressureMaxParkedBytes : ConfigManager.lanesMaxHeldBulkBytes;
+            long deferredBytes = 0;
+            for (int i = candidate; i < LANES.length; i++) {
+                deferredBytes += laneBytes[i];
+            }
+            if (deferredBytes <= limit) firstDeferred = candidate;
+        }
+
+        for (int i = 0; i < firstDeferred; i++) {
+            ArrayDeque<Held> queue = queues[i];
+            Held entry;
+            while ((entry = queue.poll()) != null) {
+                held--;
+                if (entry.packet != null) {
+                    connection.send(entry.packet, entry.listener, false);
+                }
+            }
+            laneBytes[i] = 0;
+        }
+
+        if (firstDeferred == LANES.length) {
+            latest.clear();
+            byEntity.clear();
+        } else {
+            // Parked entries stay coalescable, written ones must not be touched anymore
+            final int parkedFrom = firstDeferred;
+            latest.values().removeIf(entry -> entry.lane < parkedFrom);
+            byEntity.values().removeIf(entries -> {
+                entries.removeIf(entry -> entry.lane < parkedFrom);
+                return entries.isEmpty();
+            });
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package dev.pulsemc.pulse.network;
+
+import dev.pulsemc.pulse.ConfigManager;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundBlockEntityDataPacket;
+import net.minecraft.network.protocol.game.ClientboundBlockUpdatePacket;
+import net.minecraft.network.protocol.game.ClientboundLevelChunkWithLightPacket;
+import net.minecraft.network.protocol.game.ClientboundSectionBlocksUpdatePacket;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves how {@link PulseBuffer} handles a packet class with a single lookup.
+ * <p>
+ * The routing table is immutable and rebuilt on config load, so readers never
+ * observe a half-applied configuration.
+ */
+public final class PacketRouter {
+
+    public enum Route {
+        /** Listed in compatibility.ignored-packets, sent untouched. */
+        IGNORE,
+        /** Chat and resource pack packets, sent untouched to keep signing order. */
+        CHAT,
+        /** Keep-alives, pings and disconnects. */
+        CRITICAL,
+        /** Listed in batching.instant-packets. */
+        INSTANT,
+        /** Block updates that go through the explosion optimization. */
+        BLOCK,
+        /** Multi-block section updates, always sent right away. */
+        SECTION,
+        /** Full chunk packets, sent right away unless packets are held. */
+        CHUNK,
+        /** Dimension and protocol switches, everything held is written before them. */
+        BARRIER,
+        /** Everything else. */
+        BATCH
+    }
+
+    /**
+     * Priority lanes for packets held until the next flush, drained in declaration order.
+     */
+    public enum Lane {
+        /** Entity spawns and removals, plus batching.lanes.critical. */
+        CRITICAL,
+        COMBAT,
+        MOVEMENT,
+        /** Everything not listed anywhere. */
+        WORLD,
+        /** Chunk, light and block data. Held back while the client can't keep up. */
+        BULK
+    }
+
+    private static final String[] PACKAGES = {
+            "net.minecraft.network.protocol.game.",
+            "net.minecraft.network.protocol.common.",
+            "net.minecraft.network.protocol.login.",
+            "net.minecraft.network.protocol.status.",
+            "net.minecraft.network.protocol.handshake."
+    };
+
+    private static volatile Table table = new Table();
+
+    private PacketRouter() {}
+
+    public static Route route(Packet<?> packet) {
+        return table.routes.get(packet.getClass());
+    }
+
+    public static Lane lane(Packet<?> packet) {
+        return table.lanes.get(packet.getClass());
+    }
+
+    /**
+     * @return true for entity spawns and removals, which must not overtake packets held for the same entity
+     */
+    public static boolean isEntityLifecycle(Packet<?> packet) {
+        return table.entityLifecycle.contains(packet.getClass());
+    }
+
+    /**
+     * Rebuilds the routing table from the current {@link ConfigManager} values.
+     */
+    public static void rebuild() {
+        table = new Table();
+    }
+
+    private static final class Table {
+        private final boolean enabled = ConfigManager.enabled;
+        private final boolean optExplosions = ConfigManager.optExplosions;
+        private final boolean holding = PacketLanes.isEnabled();
+        private final Set<Class<?>> instant = new ReferenceOpenHashSet<>();
+        private final Set<Class<?>> ignored = new ReferenceOpenHashSet<>();
+        private final Set<Class<?>> chat = new ReferenceOpenHashSet<>();
+        private final Set<Class<?>> critical = new ReferenceOpenHashSet<>();
+        private final Set<Class<?>> barrier = new ReferenceOpenHashSet<>();
+        private final Set<Class<?>> entityLifecycle = new ReferenceOpenHashSet<>();
+        private final Map<Class<?>, Lane> laneOverrides = new Reference2ObjectOpenHashMap<>();
+
+        private final ClassValue<Route> routes = new ClassValue<>() {
+            @Override
+            protected Route computeValue(Class<?> type) {
+                return resolve(type);
+            }
+        };
+
+        private final ClassValue<Lane> lanes = new ClassValue<>() {
+            @Override
+            protected Lane computeValue(Class<?> type) {
+                return laneOverrides.getOrDefault(type, Lane.WORLD);
+            }
+        };
+
+        private Table() {
+            resolveClasses(ConfigManager.instantPackets, instant);
+            resolveClasses(ConfigManager.ignoredPackets, ignored);
+
+            // Pre-fill chat packets
+            chat.add(net.minecraft.network.protocol.game.ClientboundPlayerChatPacket.class);
+            chat.add(net.minecraft.network.protocol.game.ClientboundSystemChatPacket.class);
+            chat.add(net.minecraft.network.protocol.game.ClientboundDisguisedChatPacket.class);
+            chat.add(net.minecraft.network.protocol.common.ClientboundResourcePackPushPacket.class);
+
+            // Pre-fill critical packets
+            critical.add(net.minecraft.network.protocol.common.ClientboundKeepAlivePacket.class);
+            critical.add(net.minecraft.network.protocol.common.ClientboundDisconnectPacket.class);
+            critical.add(net.minecraft.network.protocol.login.ClientboundLoginDisconnectPacket.class);
+            critical.add(net.minecraft.network.protocol.status.ClientboundStatusResponsePacket.class);
+            critical.add(net.minecraft.network.protocol.common.ClientboundPingPacket.class);
+
+            // Held packets must not cross a dimension or protocol change
+            barrier.add(net.minecraft.network.protocol.game.ClientboundLoginPacket.class);
+            barrier.add(net.minecraft.network.protocol.game.ClientboundRespawnPacket.class);
+            barrier.add(net.minecraft.network.protocol.game.ClientboundStartConfigurationPacket.class);
+
+            // Configured lanes, lowest priority first so higher lanes win on duplicates
+            assignLane(ConfigManager.laneBulk, Lane.BULK);
+            assignLane(ConfigManager.laneMovement, Lane.MOVEMENT);
+            assignLane(ConfigManager.laneCombat, Lane.COMBAT);
+            assignLane(ConfigManager.laneCritical, Lane.CRITICAL);
+
+            // The packets held for their entities are written before these, see PacketLanes#writeEntities
+            entityLifecycle.add(net.minecraft.network.protocol.game.ClientboundAddEntityPacket.class);
+            entityLifecycle.add(net.minecraft.network.protocol.game.ClientboundRemoveEntitiesPacket.class);
+            entityLifecycle.add(net.minecraft.network.protocol.game.ClientboundBundlePacket.class);
+
+            // Fixed lanes, these keep entity and chunk ordering intact
+            for (Class<?> type : entityLifecycle) {
+                laneOverrides.put(type, Lane.CRITICAL);
+            }
+            laneOverrides.put(net.minecraft.network.protocol.game.ClientboundLevelChunkWithLightPacket.class, Lane.BULK);
+            laneOverrides.put(net.minecraft.network.protocol.game.ClientboundLightUpdatePacket.class, Lane.BULK);
+            laneOverrides.put(net.minecraft.network.protocol.game.ClientboundChunksBiomesPacket.class, Lane.BULK);
+            laneOverrides.put(net.minecraft.network.protocol.game.ClientboundForgetLevelChunkPacket.class, Lane.BULK);
+            laneOverrides.put(net.minecraft.network.protocol.game.ClientboundChunkBatchStartPacket.class, Lane.BULK);
+            laneOverrides.put(net.minecraft.network.protocol.game.ClientboundChunkBatchFinishedPacket.class, Lane.BULK);
+            laneOverrides.put(ClientboundBlockUpdatePacket.class, Lane.BULK);
+            laneOverrides.put(ClientboundSectionBlocksUpdatePacket.class, Lane.BULK);
+            laneOverrides.put(ClientboundBlockEntityDataPacket.class, Lane.BULK);
+        }
+
+        private void assignLane(List<String> names, Lane lane) {
+            Set<Class<?>> classes = new ReferenceOpenHashSet<>();
+            resolveClasses(names, classes);
+            for (Class<?> type : classes) {
+                laneOverrides.put(type, lane);
+            }
+        }
+
+        // Order mirrors the checks PulseBuffer.add used to run one by one
+        private Route resolve(Class<?> type) {
+            if (type == ClientboundSectionBlocksUpdatePacket.class) return Route.SECTION;
+            if (!enabled) return Route.IGNORE;
+            if (type == ClientboundLevelChunkWithLightPacket.class) return Route.CHUNK;
+            if (ignored.contains(type)) return Route.IGNORE;
+            if (chat.contains(type)) return Route.CHAT;
+            if (holding && barrier.contains(type)) return Route.BARRIER;
+            if (optExplosions && (type == ClientboundBlockUpdatePacket.class || type == ClientboundBlockEntityDataPacket.class)) {
+                return Route.BLOCK;
+            }
+            if (critical.contains(type)) return Route.CRITICAL;
+            if (instant.contains(type)) return Route.INSTANT;
+            return Route.BATCH;
+        }
+    }
+
+    private static void resolveClasses(List<String> names, Set<Class<?>> into) {
+        for (String name : names) {
+            try {
+                boolean found = false;
+                for (String pkg : PACKAGES) {
+                    try {
+                        into.add(Class.forName(pkg + name));
+                        found = true;
+                        break;
+                    } catch (ClassNotFoundException ignored) {}
+                }
+                if (!found) {
+                    into.add(Class.forName(name));
+                }
+            } catch (Exception ignored) {}
+        }
+    }
+}
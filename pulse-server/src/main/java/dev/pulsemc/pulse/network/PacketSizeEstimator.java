@@ -0,0 +1,72 @@
+package dev.pulsemc.pulse.network;
+
+import net.minecraft.network.protocol.BundlePacket;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundLevelChunkWithLightPacket;
+import net.minecraft.network.protocol.game.ClientboundSectionBlocksUpdatePacket;
+
+/**
+ * Estimates the encoded size of a packet from sizes previously observed by the encoder.
+ * <p>
+ * Samples are written by the Netty event loops and read by the server thread without
+ * synchronization. A stale read only makes the estimate slightly off, which is fine
+ * for batch limits.
+ */
+public final class PacketSizeEstimator {
+    private static final int DEFAULT_SIZE = 64;
+    // Packet id, section position and entry count
+    private static final int SECTION_HEADER_BYTES = 11;
+    // One varlong of block state id and position per entry
+    private static final int SECTION_ENTRY_BYTES = 4;
+
+    private static final ClassValue<Estimate> estimates = new ClassValue<>() {
+        @Override
+        protected Estimate computeValue(Class<?> type) {
+            return new Estimate();
+        }
+    };
+
+    private static final class Estimate {
+        private int average = DEFAULT_SIZE;
+        private boolean learned = false;
+    }
+
+    private PacketSizeEstimator() {}
+
+    /**
+     * Records the encoded size of a packet. Called from the packet encoder.
+     */
+    public static void record(Packet<?> packet, int bytes) {
+        if (packet instanceof ClientboundLevelChunkWithLightPacket chunk) {
+            ChunkPacketSizes.record(chunk, bytes);
+        }
+
+        Estimate estimate = estimates.get(packet.getClass());
+        if (estimate.learned) {
+            // Exponential moving average, 1/8 weight for the new sample
+            estimate.average += (bytes - estimate.average) >> 3;
+        } else {
+            estimate.average = bytes;
+            estimate.learned = true;
+        }
+    }
+
+    /**
+     * @return the expected encoded size of the packet in bytes
+     */
+    public static int estimate(Packet<?> packet) {
+        if (packet instanceof BundlePacket<?> bundle) {
+            // Bundles are split before encoding, so only their parts are ever measured
+            int total = 0;
+            for (Packet<?> subPacket : bundle.subPackets()) {
+                total += estimates.get(subPacket.getClass()).average;
+            }
+            return total;
+        }
+        if (packet instanceof ClientboundSectionBlocksUpdatePacket section) {
+            // Grows with the number of changes, a class average would be meaningless
+            return SECTION_HEADER_BYTES + section.positions.length * SECTION_ENTRY_BYTES;
+        }
+        return estimates.get(packet.getClass()).average;
+    }
+}
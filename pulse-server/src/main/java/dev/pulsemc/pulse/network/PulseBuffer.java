@@ -6,175 +6,158 @@ import dev.pulsemc.pulse.api.events.optimization.PulseChunkOptimizationEvent;
 import dev.pulsemc.pulse.api.events.network.PulsePacketSendEvent;
 import dev.pulsemc.pulse.api.network.NetworkBuffer;
 import dev.pulsemc.pulse.metrics.Metrics;
+import dev.pulsemc.pulse.network.impl.PacketEntityTracker;
+import dev.pulsemc.pulse.network.impl.VirtualBlockLayerImpl;
 import io.netty.channel.ChannelFutureListener;
-import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import net.minecraft.core.BlockPos;
+import net.minecraft.network.Connection;
 import net.minecraft.network.protocol.Packet;
-import net.minecraft.network.protocol.game.ClientboundBlockEntityDataPacket;
+import net.minecraft.network.protocol.game.ClientGamePacketListener;
 import net.minecraft.network.protocol.game.ClientboundBlockUpdatePacket;
+import net.minecraft.network.protocol.game.ClientboundBundlePacket;
+import net.minecraft.network.protocol.game.ClientboundForgetLevelChunkPacket;
 import net.minecraft.network.protocol.game.ClientboundLevelChunkWithLightPacket;
+import net.minecraft.network.protocol.game.ClientboundRespawnPacket;
 import net.minecraft.network.protocol.game.ClientboundSectionBlocksUpdatePacket;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.server.network.ServerCommonPacketListenerImpl;
 import net.minecraft.server.network.ServerGamePacketListenerImpl;
 import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.chunk.LevelChunk;
 import org.bukkit.Bukkit;
 import org.jspecify.annotations.Nullable;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 
 public class PulseBuffer implements NetworkBuffer {
     private final ServerCommonPacketListenerImpl listener;
-    private final AtomicInteger bufferedCount = new AtomicInteger(0);
-    private final AtomicInteger currentBatchBytes = new AtomicInteger(0);
+    // Batch counters are owned by the server thread, other threads only request flushes
+    private int bufferedCount = 0;
+    private int currentBatchBytes = 0;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
 
-    private static final java.util.concurrent.ScheduledExecutorService scheduler = java.util.concurrent.Executors.newSingleThreadScheduledExecutor(
-            new com.google.common.util.concurrent.ThreadFactoryBuilder().setNameFormat("pulse-interval-flusher").setDaemon(true).build()
-    );
-    private java.util.concurrent.ScheduledFuture<?> intervalTask;
-
-    private static volatile java.util.Set<Class<?>> instantPacketClasses = java.util.Collections.emptySet();
-    private static volatile java.util.Set<Class<?>> ignoredPacketClasses = java.util.Collections.emptySet();
-    private static volatile java.util.Set<Class<?>> chatPacketClasses = java.util.Collections.emptySet();
-    private static volatile java.util.Set<Class<?>> criticalPacketClasses = java.util.Collections.emptySet();
-    private static volatile boolean classesInitialized = false;
+    private volatile IntervalFlushWheel.Timeout intervalTask;
+    private final AdaptiveBatchController adaptive = new AdaptiveBatchController();
+    private final PacketLanes lanes = new PacketLanes();
 
     private final VirtualBlockTracker virtualView = new VirtualBlockTracker();
+    // Subscribed shared layers, highest priority first. Copied on write, read from any thread
+    private volatile VirtualBlockLayerImpl[] layers = new VirtualBlockLayerImpl[0];
+    // Whether the player's layer subscriptions were picked up. Server thread only
+    private boolean layersAttached = false;
     private boolean manualFakeMode = false;
+    // Created on the first packet entity spawn. Server thread only
+    private @Nullable PacketEntityTracker packetEntities;
+    boolean tickFlushScheduled = false;
+    private volatile boolean attached = false;
 
 
     public PulseBuffer(ServerCommonPacketListenerImpl listener) {
         this.listener = listener;
-        if (!classesInitialized) {
-            initializeClasses();
-        }
         setupIntervalTask();
     }
 
     private void setupIntervalTask() {
-        if (ConfigManager.batchingMode == ConfigManager.BatchingMode.INTERVAL) {
-            intervalTask = scheduler.scheduleAtFixedRate(() -> flush(FlushReason.INTERVAL),
-                    ConfigManager.flushInterval, ConfigManager.flushInterval, java.util.concurrent.TimeUnit.MILLISECONDS);
+        if (ConfigManager.batchingMode != ConfigManager.BatchingMode.INTERVAL
+                && ConfigManager.batchingMode != ConfigManager.BatchingMode.ADAPTIVE) return;
+        // Only game listeners batch, earlier phases send everything right away
+        if (!(listener instanceof ServerGamePacketListenerImpl)) return;
+
+        var channel = listener.connection.channel;
+        if (channel != null) {
+            intervalTask = IntervalFlushWheel.schedule(this, channel);
+        }
+    }
+
+    /**
+     * @return false once the connection moved on to another listener, for example on reconfiguration
+     */
+    public boolean isActive() {
+        if (listener.connection.getPacketListener() == listener) {
+            attached = true;
+            return true;
         }
+        // Not installed yet, the listener is created before the connection switches to it
+        return !attached;
     }
 
     public static void reload() {
-        classesInitialized = false;
+        PacketRouter.rebuild();
     }
 
     public void stop() {
         if (intervalTask != null) {
-            intervalTask.cancel(false);
-        }
-    }
-
-    private synchronized static void initializeClasses() {
-        if (classesInitialized) return;
-
-        java.util.Set<Class<?>> instant = new ReferenceOpenHashSet<>();
-        java.util.Set<Class<?>> ignored = new ReferenceOpenHashSet<>();
-        java.util.Set<Class<?>> chat = new ReferenceOpenHashSet<>();
-        java.util.Set<Class<?>> critical = new ReferenceOpenHashSet<>();
-
-        // We will try to resolve classes from ConfigManager names
-        resolveClasses(ConfigManager.instantPackets, instant);
-        resolveClasses(ConfigManager.ignoredPackets, ignored);
-
-        // Pre-fill chat packets
-        chat.add(net.minecraft.network.protocol.game.ClientboundPlayerChatPacket.class);
-        chat.add(net.minecraft.network.protocol.game.ClientboundSystemChatPacket.class);
-        chat.add(net.minecraft.network.protocol.game.ClientboundDisguisedChatPacket.class);
-        chat.add(net.minecraft.network.protocol.common.ClientboundResourcePackPushPacket.class);
-
-        // Pre-fill critical packets
-        critical.add(net.minecraft.network.protocol.common.ClientboundKeepAlivePacket.class);
-        critical.add(net.minecraft.network.protocol.common.ClientboundDisconnectPacket.class);
-        critical.add(net.minecraft.network.protocol.login.ClientboundLoginDisconnectPacket.class);
-        critical.add(net.minecraft.network.protocol.status.ClientboundStatusResponsePacket.class);
-        critical.add(net.minecraft.network.protocol.common.ClientboundPingPacket.class);
-
-        instantPacketClasses = instant;
-        ignoredPacketClasses = ignored;
-        chatPacketClasses = chat;
-        criticalPacketClasses = critical;
-        classesInitialized = true;
-    }
-
-    private static void resolveClasses(List<String> names, java.util.Set<Class<?>> into) {
-        for (String name : names) {
-            try {
-                String[] packages = {
-                        "net.minecraft.network.protocol.game.",
-                        "net.minecraft.network.protocol.common.",
-                        "net.minecraft.network.protocol.login.",
-                        "net.minecraft.network.protocol.status.",
-                        "net.minecraft.network.protocol.handshake."
-                };
-                boolean found = false;
-                for (String pkg : packages) {
-                    try {
-                        into.add(Class.forName(pkg + name));
-                        found = true;
-                        break;
-                    } catch (ClassNotFoundException ignored) {}
-                }
-                if (!found) {
-                    into.add(Class.forName(name));
-                }
-            } catch (Exception ignored) {}
+            intervalTask.cancel();
+            intervalTask = null;
         }
+        if (layers.length > 0 && listener instanceof ServerGamePacketListenerImpl gameListener) {
+            for (VirtualBlockLayerImpl layer : layers) {
+                layer.removeSubscriber(gameListener.player.getUUID());
+            }
+        }
+        layers = new VirtualBlockLayerImpl[0];
+        packetEntities = null;
     }
 
-    private record PacketEntry(Packet<?> packet, @Nullable ChannelFutureListener listener) {}
-    private final java.util.concurrent.ConcurrentLinkedQueue<PacketEntry> blockQueue = new java.util.concurrent.ConcurrentLinkedQueue<>();
+    // Block updates for the explosion optimization, swapped while one batch is processed
+    private BlockUpdateBatch pendingBlocks = new BlockUpdateBatch();
+    private BlockUpdateBatch spareBlocks = new BlockUpdateBatch();
+    private boolean processingBlocks = false;
+    private final SectionDelta sectionDelta = new SectionDelta();
+    private static final Packet<?>[] NO_SOURCE = new Packet<?>[0];
 
     public void add(Packet<?> packet, @Nullable ChannelFutureListener sendListener){
         if (packet == null) return;
 
-        if (packet instanceof ClientboundBlockUpdatePacket p) {
-            BlockState fakeState = virtualView.getBlock(p.getPos());
+        if (packet.getClass() == ClientboundBlockUpdatePacket.class) {
+            ClientboundBlockUpdatePacket p = (ClientboundBlockUpdatePacket) packet;
+            BlockState fakeState = getVirtualBlock(p.getPos());
             if (fakeState != null) {
                 packet = new ClientboundBlockUpdatePacket(p.getPos(), fakeState);
             }
-        } else if (packet instanceof ClientboundSectionBlocksUpdatePacket p) {
-            flush(FlushReason.INSTANT);
-            listener.connection.send(packet, sendListener, true);
-            restoreVirtualBlocks(p.sectionPos.x(), p.sectionPos.z());
-            return;
-        }
-
-        if (!ConfigManager.enabled) {
-            listener.connection.send(packet, sendListener, true);
-            return;
-        }
-
-        if (packet instanceof ClientboundLevelChunkWithLightPacket p) {
-            flush(FlushReason.INSTANT);
-            listener.connection.send(packet, sendListener, true);
-            restoreVirtualBlocks(p.getX(), p.getZ());
-            return;
+        } else if (packet.getClass() == ClientboundForgetLevelChunkPacket.class) {
+            // Out of view, the chunk's virtual blocks only matter again once it is resent
+            long chunkKey = ((ClientboundForgetLevelChunkPacket) packet).pos().toLong();
+            virtualView.freezeChunk(chunkKey);
+            if (packetEntities != null && Bukkit.isPrimaryThread()) packetEntities.chunkForgotten(chunkKey);
+        } else if (packet.getClass() == ClientboundRespawnPacket.class) {
+            if (packetEntities != null && Bukkit.isPrimaryThread()) packetEntities.clientReset();
         }
 
-        Class<?> packetClass = packet.getClass();
-
-        // Ignored Packets
-        if (ignoredPacketClasses.contains(packetClass)) {
-            listener.connection.send(packet, sendListener, true);
-            return;
-        }
-
-        // Chat Safety & Thread Safety
-        if (!Bukkit.isPrimaryThread() || chatPacketClasses.contains(packetClass)) {
-            listener.connection.send(packet, sendListener, true);
-            return;
+        PacketRouter.Route route = PacketRouter.route(packet);
+        switch (route) {
+            case SECTION -> {
+                ClientboundSectionBlocksUpdatePacket p = (ClientboundSectionBlocksUpdatePacket) packet;
+                sendWorldData(packet, sendListener, p.sectionPos.x(), p.sectionPos.z());
+                return;
+            }
+            case CHUNK -> {
+                ClientboundLevelChunkWithLightPacket p = (ClientboundLevelChunkWithLightPacket) packet;
+                sendWorldData(packet, sendListener, p.getX(), p.getZ());
+                chunkSent(p);
+                return;
+            }
+            // Ignored Packets & Chat Safety
+            case IGNORE, CHAT -> {
+                if (Bukkit.isPrimaryThread()) writeHeld(false);
+                listener.connection.send(packet, sendListener, true);
+                // Chunks are ignored while Pulse is disabled, their packet entities are shown all the same
+                if (packet.getClass() == ClientboundLevelChunkWithLightPacket.class) {
+                    chunkSent((ClientboundLevelChunkWithLightPacket) packet);
+                }
+                return;
+            }
         }
 
-        // Join Safety
-        if (!(listener instanceof ServerGamePacketListenerImpl)) {
+        // Thread Safety & Join Safety
+        if (!Bukkit.isPrimaryThread() || !(listener instanceof ServerGamePacketListenerImpl)) {
             listener.connection.send(packet, sendListener, true);
             return;
         }
@@ -189,56 +172,176 @@ public class PulseBuffer implements NetworkBuffer {
                     PulsePacketSendEvent event = new PulsePacketSendEvent(bukkitPlayer, packet);
                     Bukkit.getPluginManager().callEvent(event);
                     if (event.isCancelled()) return;
-                    packet = (Packet<?>) event.getPacket();
-                    packetClass = packet.getClass();
+                    if (event.getPacket() != packet) {
+                        packet = (Packet<?>) event.getPacket();
+                        route = PacketRouter.route(packet);
+                    }
                 }
             }
         }
 
-        if (ConfigManager.optExplosions && isBlockUpdate(packet)) {
-            handleBlockUpdate(packet, sendListener);
+        switch (route) {
+            case BLOCK -> handleBlockUpdate(packet, sendListener);
+            case BARRIER -> {
+                writeHeld(true);
+                flush(FlushReason.INSTANT);
+                listener.connection.send(packet, sendListener, true);
+                Metrics.physicalCounter.incrementAndGet();
+            }
+            // Instant Packets
+            case CRITICAL, INSTANT -> {
+                flush(FlushReason.INSTANT);
+                listener.connection.send(packet, sendListener, true);
+                Metrics.physicalCounter.incrementAndGet();
+            }
+            default -> queuePacketToNetty(packet, sendListener);
+        }
+    }
+
+    // Shows packet entities once the client has their chunk, the counterpart of the forget hook in add
+    private void chunkSent(ClientboundLevelChunkWithLightPacket packet) {
+        if (packetEntities != null && Bukkit.isPrimaryThread()) packetEntities.chunkSent(ChunkPos.asLong(packet.getX(), packet.getZ()));
+    }
+
+    /**
+     * Sends a chunk or section update together with the virtual blocks it overwrote.
+     * While packets are held both are held with the batch, otherwise they are sent right away.
+     */
+    private void sendWorldData(Packet<?> packet, @Nullable ChannelFutureListener sendListener, int chunkX, int chunkZ) {
+        boolean hold = isHolding();
+        if (!hold) flush(FlushReason.INSTANT);
+        sendWithVirtualBlocks(packet, sendListener, chunkX, chunkZ, hold);
+    }
+
+    /**
+     * Bundles world data with the player's virtual blocks in the chunk, so the client applies
+     * both in the same frame instead of rendering the real blocks until the repairs arrive.
+     * Chunks without virtual blocks are sent as is.
+     */
+    @SuppressWarnings("unchecked")
+    private void sendWithVirtualBlocks(Packet<?> packet, @Nullable ChannelFutureListener sendListener, int chunkX, int chunkZ, boolean hold) {
+        List<Packet<?>> repairs = virtualBlockRepairs(chunkX, chunkZ);
+        // Paper holds back chunks until anti-xray is done and splits off oversized block
+        // entities, neither happens for packets inside a bundle
+        if (!repairs.isEmpty() && packet.isReady() && packet.getExtraPackets() == null) {
+            List<Packet<? super ClientGamePacketListener>> parts = new ArrayList<>(repairs.size() + 1);
+            parts.add((Packet<? super ClientGamePacketListener>) packet);
+            for (Packet<?> repair : repairs) {
+                parts.add((Packet<? super ClientGamePacketListener>) repair);
+            }
+            Metrics.virtualBlockBundles.incrementAndGet();
+            sendWorldPacket(new ClientboundBundlePacket(parts), sendListener, packet, hold);
             return;
         }
 
-        // Instant Packets
-        if (criticalPacketClasses.contains(packetClass) || instantPacketClasses.contains(packetClass)) {
-            flush(FlushReason.INSTANT);
+        sendWorldPacket(packet, sendListener, packet, hold);
+        for (Packet<?> repair : repairs) {
+            sendWorldPacket(repair, null, repair, hold);
+        }
+    }
+
+    private void sendWorldPacket(Packet<?> packet, @Nullable ChannelFutureListener sendListener, Packet<?> laneOf, boolean hold) {
+        if (hold) {
+            queuePacketToNetty(packet, sendListener, laneOf);
+        } else {
             listener.connection.send(packet, sendListener, true);
-            Metrics.physicalCounter.incrementAndGet();
-            return;
         }
+    }
 
-        queuePacketToNetty(packet, sendListener);
+    // Lanes follow the same rules as batching: game listeners on the server thread only
+    private boolean isHolding() {
+        return PacketLanes.isEnabled() && Bukkit.isPrimaryThread() && listener instanceof ServerGamePacketListenerImpl;
+    }
+
+    /**
+     * Writes held lane packets to the channel without flushing. Server thread only.
+     *
+     * @param force also write BULK packets while the channel is unwritable
+     */
+    private void writeHeld(boolean force) {
+        if (lanes.isEmpty()) return;
+
+        var channel = listener.connection.channel;
+        lanes.drain(listener.connection, !force && channel != null && !channel.isWritable());
     }
 
     /**
      * Sends all packets accumulated in the buffer to the client.
+     * <p>
+     * Off the server thread this only requests a channel flush, the batch itself
+     * is settled by the server thread.
      */
-    public synchronized void flush(FlushReason reason) {
-        if (!blockQueue.isEmpty()) {
-            processBlockQueue();
+    public void flush(FlushReason reason) {
+        if (!Bukkit.isPrimaryThread()) {
+            requestFlush();
+            return;
         }
 
-        long pending = getPendingBytes();
+        if (!prepareFlush()) return;
 
-        if (bufferedCount.get() == 0 && pending == 0) return;
+        listener.connection.flushChannel();
+        Metrics.physicalCounter.incrementAndGet();
+    }
 
-        Metrics.totalBytesSent.addAndGet(pending);
+    /**
+     * Schedules a flush on the channel's event loop.
+     * Concurrent requests collapse into a single task while one is pending.
+     */
+    private void requestFlush() {
+        var channel = listener.connection.channel;
+        if (channel == null || !flushScheduled.compareAndSet(false, true)) return;
 
-        listener.connection.flushChannel();
+        channel.eventLoop().execute(() -> {
+            flushScheduled.set(false);
+            flushOnEventLoop();
+        });
+    }
+
+    /**
+     * Flushes whatever is already written to the channel. Event loop only.
+     */
+    void flushOnEventLoop() {
+        var channel = listener.connection.channel;
+        if (channel == null) return;
+
+        var outbound = channel.unsafe().outboundBuffer();
+        if (outbound == null || outbound.totalPendingWriteBytes() == 0) return;
 
-        bufferedCount.set(0);
-        currentBatchBytes.set(0);
+        Metrics.totalBytesSent.addAndGet(outbound.totalPendingWriteBytes());
+        channel.flush();
         Metrics.physicalCounter.incrementAndGet();
     }
 
-    private boolean isChatPacket(Packet<?> packet) {
-        return chatPacketClasses.contains(packet.getClass());
-    }
+    /**
+     * Settles the pending batch without touching the channel.
+     * The caller is responsible for flushing it afterwards. Server thread only.
+     *
+     * @return true if the channel has data waiting to be flushed
+     */
+    boolean prepareFlush() {
+        if (!pendingBlocks.isEmpty()) {
+            processBlockQueue();
+        }
+        writeHeld(false);
+
+        long pending = getPendingBytes();
+
+        if (bufferedCount == 0 && pending == 0) return false;
 
+        Metrics.totalBytesSent.addAndGet(pending);
 
-    private boolean isCritical(Packet<?> packet) {
-        return criticalPacketClasses.contains(packet.getClass());
+        if (ConfigManager.batchingMode == ConfigManager.BatchingMode.ADAPTIVE) {
+            var channel = listener.connection.channel;
+            adaptive.onFlush(currentBatchBytes, bufferedCount, listener.latency(), channel == null || channel.isWritable());
+        }
+
+        bufferedCount = 0;
+        currentBatchBytes = 0;
+        return true;
+    }
+
+    Connection getConnection() {
+        return listener.connection;
     }
 
     /**
@@ -254,139 +357,319 @@ public class PulseBuffer implements NetworkBuffer {
 
     private void handleBlockUpdate(Packet<?> packet, @Nullable ChannelFutureListener listener) {
         if (isFakeBlock(packet) || manualFakeMode) {
-            long key = getChunkKey(packet);
-
-            if (packet instanceof net.minecraft.network.protocol.game.ClientboundBlockUpdatePacket p) {
+            // Blocks shown by a layer are already stored there
+            if (packet instanceof net.minecraft.network.protocol.game.ClientboundBlockUpdatePacket p && getLayerBlock(p.getPos()) != p.getBlockState()) {
                 virtualView.registerBlock(p.getPos(), p.getBlockState());
             }
 
             queuePacketToNetty(packet, listener);
             return;
         }
-        blockQueue.add(new PacketEntry(packet, listener));
+        pendingBlocks.add(packet, listener);
     }
 
     private void processBlockQueue() {
-        if (blockQueue.isEmpty()) return;
+        if (pendingBlocks.isEmpty() || processingBlocks) return;
 
-        List<PacketEntry> processingQueue = new ArrayList<>();
-        PacketEntry packetEntry;
-        while ((packetEntry = blockQueue.poll()) != null) {
-            processingQueue.add(packetEntry);
+        // Updates sent by event listeners meanwhile go to the next flush
+        BlockUpdateBatch batch = pendingBlocks;
+        pendingBlocks = spareBlocks;
+        spareBlocks = batch;
+        processingBlocks = true;
+        try {
+            processBlockBatch(batch);
+        } finally {
+            batch.clear();
+            processingBlocks = false;
         }
+    }
 
-        if (processingQueue.isEmpty()) return;
-
+    private void processBlockBatch(BlockUpdateBatch batch) {
         if (!(listener instanceof ServerGamePacketListenerImpl gameListener) || gameListener.player == null) {
-            processingQueue.forEach(e -> queuePacketToNetty(e.packet(), e.listener()));
+            for (int i = 0; i < batch.size; i++) {
+                queuePacketToNetty(batch.packets[i], batch.listeners[i]);
+            }
             return;
         }
 
-        Map<Long, List<PacketEntry>> batchMap = new HashMap<>();
-        Map<Long, Integer> chunkBlockCounts = new HashMap<>();
+        for (BlockUpdateBatch.ChunkGroup group : batch.groupByChunk()) {
+            if (group.changes < ConfigManager.optExplosionThreshold || virtualView.isChunkProtected(group.chunkKey) || batch.hasSendListener(group)) {
+                for (int i = 0; i < group.size; i++) {
+                    int index = group.indices[i];
+                    queuePacketToNetty(batch.packets[index], batch.listeners[index]);
+                }
+                continue;
+            }
+
+            // Other viewers of the chunk usually got the very same updates this tick
+            SharedBlockDecisions.Decision decision = SharedBlockDecisions.find(gameListener.player.level(), batch, group);
+            if (decision != null) {
+                Metrics.sharedBlockDecisions.incrementAndGet();
+            } else {
+                decision = decide(gameListener, batch, group);
+            }
 
-        for (PacketEntry entry : processingQueue) {
-            long key = getChunkKey(entry.packet());
-            batchMap.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+            if (decision.fullChunk()) {
+                Metrics.optimizedChunks.incrementAndGet();
+            } else {
+                Metrics.chunkDeltaDecisions.incrementAndGet();
+            }
+            Metrics.chunkResendBytesSaved.addAndGet(decision.savedBytes());
 
-            int count = 1;
-            if (entry.packet() instanceof ClientboundSectionBlocksUpdatePacket sectionPacket) {
-                count = sectionPacket.positions.length;
+            List<Packet<?>> packets = decision.packets();
+            if (decision.fullChunk()) {
+                // This player's virtual blocks go on top of the shared chunk
+                sendWithVirtualBlocks(packets.get(0), null, ChunkPos.getX(group.chunkKey), ChunkPos.getZ(group.chunkKey), true);
+                continue;
+            }
+            for (int i = 0, size = packets.size(); i < size; i++) {
+                queuePacketToNetty(packets.get(i), null);
             }
-            chunkBlockCounts.merge(key, count, Integer::sum);
         }
+    }
 
-        for (Map.Entry<Long, List<PacketEntry>> entry : batchMap.entrySet()) {
-            long chunkKey = entry.getKey();
-            List<PacketEntry> entries = entry.getValue();
-            int totalChanges = chunkBlockCounts.getOrDefault(chunkKey, 0);
+    /**
+     * Compacts the chunk's updates per section, or replaces them with a full chunk when
+     * most sections are dirty and the chunk is smaller than the deltas.
+     */
+    private SharedBlockDecisions.Decision decide(ServerGamePacketListenerImpl gameListener, BlockUpdateBatch batch, BlockUpdateBatch.ChunkGroup group) {
+        sectionDelta.clear();
+        for (int i = 0; i < group.size; i++) {
+            sectionDelta.add(batch.packets[group.indices[i]]);
+        }
+        List<Packet<?>> compacted = sectionDelta.toPackets();
+        int compactedBytes = 0;
+        for (Packet<?> packet : compacted) {
+            compactedBytes += PacketSizeEstimator.estimate(packet);
+        }
 
-            if (totalChanges >= ConfigManager.optExplosionThreshold) {
-                if (virtualView.isChunkProtected(chunkKey)) {
-                    entries.forEach(e -> queuePacketToNetty(e.packet(), e.listener()));
-                    continue;
-                }
+        // The optimization event is per player, its outcome can't be shared
+        boolean shareable = SharedBlockDecisions.isOpen() && PulseChunkOptimizationEvent.getHandlerList().getRegisteredListeners().length == 0;
+        // Only a shared decision keeps its source to match other viewers against
+        Packet<?>[] source = shareable ? groupSource(batch, group) : NO_SOURCE;
+        int x = ChunkPos.getX(group.chunkKey);
+        int z = ChunkPos.getZ(group.chunkKey);
+        LevelChunk chunk = gameListener.player.level().getChunkIfLoaded(x, z);
+
+        SharedBlockDecisions.Decision decision = null;
+        if (chunk != null && sectionDelta.sectionCount() * 2 > chunk.getSections().length) {
+            int fullBytes = ChunkPacketSizes.estimate(chunk);
+            if (compactedBytes > fullBytes && callOptimizationEvent(gameListener, x, z, group.changes)) {
+                decision = new SharedBlockDecisions.Decision(source, List.of(ChunkPacketCache.get(chunk)), true, group.deltaBytes - fullBytes);
+            }
+        }
+        if (decision == null) {
+            decision = new SharedBlockDecisions.Decision(source, compacted, false, Math.max(0, group.deltaBytes - compactedBytes));
+        }
 
-                int x = ChunkPos.getX(chunkKey);
-                int z = ChunkPos.getZ(chunkKey);
-                LevelChunk chunk = gameListener.player.level().getChunkIfLoaded(x, z);
-
-                if (chunk != null) {
-
-                    // API Event
-                    boolean shouldOptimize = true;
-                    if (PulseChunkOptimizationEvent.getHandlerList().getRegisteredListeners().length > 0) {
-                        PulseChunkOptimizationEvent event = new PulseChunkOptimizationEvent(
-                                gameListener.getCraftPlayer(),
-                                gameListener.getCraftPlayer().getWorld().getChunkAt(x, z),
-                                totalChanges
-                        );
-                        Bukkit.getPluginManager().callEvent(event);
-                        if (event.isCancelled()) shouldOptimize = false;
-                    }
+        if (shareable) {
+            SharedBlockDecisions.store(gameListener.player.level(), group, decision);
+        }
+        return decision;
+    }
 
-                    if (shouldOptimize) {
-                        Metrics.optimizedChunks.incrementAndGet();
-                        ClientboundLevelChunkWithLightPacket chunkPacket = new ClientboundLevelChunkWithLightPacket(chunk, gameListener.player.level().getLightEngine(), null, null);
-                        queuePacketToNetty(chunkPacket, null);
-                    } else {
-                        entries.forEach(e -> queuePacketToNetty(e.packet(), e.listener()));
-                    }
-                } else {
-                    entries.forEach(e -> queuePacketToNetty(e.packet(), e.listener()));
-                }
-            } else {
-                entries.forEach(e -> queuePacketToNetty(e.packet(), e.listener()));
-            }
+    private static Packet<?>[] groupSource(BlockUpdateBatch batch, BlockUpdateBatch.ChunkGroup group) {
+        Packet<?>[] source = new Packet<?>[group.size];
+        for (int i = 0; i < group.size; i++) {
+            source[i] = batch.packets[group.indices[i]];
         }
+        return source;
     }
 
-    private boolean isBlockUpdate(Packet<?> packet) {
-        return packet instanceof ClientboundBlockUpdatePacket ||
-                packet instanceof ClientboundSectionBlocksUpdatePacket ||
-                packet instanceof ClientboundBlockEntityDataPacket;
+    /**
+     * @return false if a plugin cancelled the full chunk resend
+     */
+    private static boolean callOptimizationEvent(ServerGamePacketListenerImpl gameListener, int x, int z, int totalChanges) {
+        if (PulseChunkOptimizationEvent.getHandlerList().getRegisteredListeners().length == 0) return true;
+
+        PulseChunkOptimizationEvent event = new PulseChunkOptimizationEvent(
+                gameListener.getCraftPlayer(),
+                gameListener.getCraftPlayer().getWorld().getChunkAt(x, z),
+                totalChanges
+        );
+        Bukkit.getPluginManager().callEvent(event);
+        // Handlers may have changed blocks, chunks cached earlier in this pass could be stale
+        ChunkPacketCache.invalidate();
+        return !event.isCancelled();
     }
 
     public void queuePacketToNetty(Packet<?> packet, @Nullable ChannelFutureListener listenerCb) {
-        listener.connection.send(packet, listenerCb, false);
-        int count = bufferedCount.incrementAndGet();
+        queuePacketToNetty(packet, listenerCb, packet);
+    }
 
-        if (getPendingBytes() > (ConfigManager.maxBatchBytes - ConfigManager.safetyMargin)) {
+    /**
+     * @param laneOf the packet whose lane is used, for bundles that must keep the order of their contents
+     */
+    private void queuePacketToNetty(Packet<?> packet, @Nullable ChannelFutureListener listenerCb, Packet<?> laneOf) {
+        if (PacketLanes.isEnabled()) {
+            // Packets held for the entity go out before it is spawned or removed, so none of them
+            // is applied to the wrong instance
+            if (ConfigManager.lanesEnabled && PacketRouter.isEntityLifecycle(laneOf)) lanes.writeEntities(listener.connection, laneOf);
+            // Without lanes everything shares one lane, so the original order is kept
+            PacketRouter.Lane lane = ConfigManager.lanesEnabled ? PacketRouter.lane(laneOf) : PacketRouter.Lane.WORLD;
+            lanes.add(lane, packet, listenerCb);
+        } else {
+            listener.connection.send(packet, listenerCb, false);
+        }
+        int count = ++bufferedCount;
+        currentBatchBytes += PacketSizeEstimator.estimate(packet);
+
+        if (currentBatchBytes > (getMaxBatchBytes() - ConfigManager.safetyMargin)) {
             flush(FlushReason.LIMIT_BYTES);
             return;
         }
 
-        if (count >= ConfigManager.maxBatchSize) {
+        if (count >= getMaxBatchSize()) {
             flush(FlushReason.LIMIT_COUNT);
         }
     }
 
-    private long getChunkKey(Packet<?> packet) {
-        if (packet instanceof ClientboundBlockUpdatePacket blockPacket) {
-            return ChunkPos.asLong(blockPacket.getPos());
-        } else if (packet instanceof ClientboundSectionBlocksUpdatePacket sectionPacket) {
-            return sectionPacket.sectionPos.chunk().toLong();
-        } else if (packet instanceof ClientboundBlockEntityDataPacket dataPacket) {
-            return ChunkPos.asLong(dataPacket.getPos());
+    /**
+     * @return one update per section with the virtual blocks the player sees in the chunk
+     */
+    private List<Packet<?>> virtualBlockRepairs(int chunkX, int chunkZ) {
+        Level level = getLevel();
+        VirtualBlockLayerImpl[] layers = this.layers;
+        boolean found = virtualView.hasBlocksInChunk(chunkX, chunkZ);
+        for (int i = 0; i < layers.length && !found; i++) {
+            found = layers[i].getLevel() == level && layers[i].getTracker().hasBlocksInChunk(chunkX, chunkZ);
         }
-        return 0;
+        if (!found) return List.of();
+
+        // Each position is restored only by the source the player actually sees there
+        SectionDelta delta = new SectionDelta();
+        BiConsumer<BlockPos, BlockState> restore = (pos, state) -> {
+            if (getVirtualBlock(pos) == state) delta.add(pos, state);
+        };
+        virtualView.forEachInChunk(chunkX, chunkZ, restore);
+        for (VirtualBlockLayerImpl layer : layers) {
+            if (layer.getLevel() == level) layer.getTracker().forEachInChunk(chunkX, chunkZ, restore);
+        }
+        return delta.toPackets();
     }
 
-    private void restoreVirtualBlocks(int chunkX, int chunkZ) {
-        Map<BlockPos, BlockState> blocks = virtualView.getBlocksInChunk(chunkX, chunkZ);
-        if (blocks == null) return;
+    /**
+     * Sends block states as one update per section, without virtual block rewriting.
+     */
+    public void sendBlocks(Map<BlockPos, BlockState> blocks) {
+        if (blocks.isEmpty()) return;
+        SectionDelta delta = new SectionDelta();
+        blocks.forEach(delta::add);
+        sendDirect(delta.toPackets());
+    }
 
-        blocks.forEach((pos, state) -> {
-            net.minecraft.network.protocol.game.ClientboundBlockUpdatePacket repair =
-                    new net.minecraft.network.protocol.game.ClientboundBlockUpdatePacket(pos, state);
-            listener.connection.send(repair, null, true);
-        });
+    /**
+     * Sends what the player should see at the positions, virtual or real, as one update per section.
+     */
+    public void refreshBlocks(Collection<BlockPos> positions) {
+        Level level = getLevel();
+        if (level == null || positions.isEmpty()) return;
+
+        SectionDelta delta = new SectionDelta();
+        for (BlockPos pos : positions) {
+            BlockState state = getVirtualBlock(pos);
+            delta.add(pos, state != null ? state : level.getBlockState(pos));
+        }
+        sendDirect(delta.toPackets());
+    }
+
+    // Bypasses add(), which would restore the whole chunk after every section update
+    private void sendDirect(List<Packet<?>> packets) {
+        boolean hold = Bukkit.isPrimaryThread() && listener instanceof ServerGamePacketListenerImpl;
+        for (Packet<?> packet : packets) {
+            if (hold) {
+                queuePacketToNetty(packet, null);
+            } else {
+                listener.connection.send(packet, null, true);
+            }
+        }
     }
 
     public VirtualBlockTracker getVirtualBlockTracker() {
         return virtualView;
     }
 
+    /**
+     * @return the packet entities of this player, or null if this isn't a game connection
+     */
+    public @Nullable PacketEntityTracker getPacketEntities() {
+        if (packetEntities == null && listener instanceof ServerGamePacketListenerImpl gameListener) {
+            packetEntities = new PacketEntityTracker(gameListener.player);
+        }
+        return packetEntities;
+    }
+
+    /**
+     * Advances packet entity movements, called once per player tick.
+     */
+    /**
+     * Picks up the layers the player is subscribed to, once. Called every tick of the game
+     * listener, the player isn't known yet when the buffer is created.
+     */
+    public void attachLayers(ServerPlayer player) {
+        if (layersAttached) return;
+        layersAttached = true;
+        VirtualBlockLayerImpl.attach(player, this);
+    }
+
+    public void tickPacketEntities() {
+        if (packetEntities != null) packetEntities.tick();
+    }
+
+    /**
+     * @return the virtual block the player sees at the position: their own first, then layers by priority
+     */
+    public @Nullable BlockState getVirtualBlock(BlockPos pos) {
+        BlockState state = virtualView.getBlock(pos);
+        return state != null ? state : getLayerBlock(pos);
+    }
+
+    private @Nullable BlockState getLayerBlock(BlockPos pos) {
+        VirtualBlockLayerImpl[] layers = this.layers;
+        if (layers.length == 0) return null;
+
+        Level level = getLevel();
+        for (VirtualBlockLayerImpl layer : layers) {
+            if (layer.getLevel() != level) continue;
+            BlockState state = layer.getTracker().getBlock(pos);
+            if (state != null) return state;
+        }
+        return null;
+    }
+
+    private @Nullable Level getLevel() {
+        if (listener instanceof ServerGamePacketListenerImpl gameListener && gameListener.player != null) {
+            return gameListener.player.level();
+        }
+        return null;
+    }
+
+    public synchronized void addLayer(VirtualBlockLayerImpl layer) {
+        // Already there if the player subscribed before the first tick
+        if (Arrays.asList(layers).contains(layer)) return;
+        VirtualBlockLayerImpl[] updated = Arrays.copyOf(layers, layers.length + 1);
+        int i = updated.length - 1;
+        // Insertion keeps the array sorted by descending priority, older layers first on ties
+        while (i > 0 && updated[i - 1].getPriority() < layer.getPriority()) {
+            updated[i] = updated[i - 1];
+            i--;
+        }
+        updated[i] = layer;
+        layers = updated;
+    }
+
+    public synchronized void removeLayer(VirtualBlockLayerImpl layer) {
+        VirtualBlockLayerImpl[] current = layers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != layer) continue;
+            VirtualBlockLayerImpl[] updated = new VirtualBlockLayerImpl[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, i);
+            System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+            layers = updated;
+            return;
+        }
+    }
+
     private boolean isFakeBlock(Packet<?> packet) {
         if (!(this.listener instanceof ServerGamePacketListenerImpl gameListener)) return false;
         try {
@@ -411,4 +694,23 @@ public class PulseBuffer implements NetworkBuffer {
     public void flush() {
         this.flush(FlushReason.MANUAL);
     }
+
+    @Override
+    public int getMaxBatchBytes() {
+        return ConfigManager.batchingMode == ConfigManager.BatchingMode.ADAPTIVE ? adaptive.getMaxBatchBytes() : ConfigManager.maxBatchBytes;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return ConfigManager.batchingMode == ConfigManager.BatchingMode.ADAPTIVE ? adaptive.getMaxBatchSize() : ConfigManager.maxBatchSize;
+    }
+
+    @Override
+    public int getFlushInterval() {
+        return switch (ConfigManager.batchingMode) {
+            case ADAPTIVE -> adaptive.getFlushInterval();
+            case INTERVAL -> ConfigManager.flushInterval;
+            default -> 0;
+        };
+    }
 }
\ No newline at end of file
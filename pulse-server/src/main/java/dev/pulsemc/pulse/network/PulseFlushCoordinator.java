@@ -0,0 +1,80 @@
+package dev.pulsemc.pulse.network;
+
+import dev.pulsemc.pulse.api.enums.FlushReason;
+import dev.pulsemc.pulse.metrics.Metrics;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import net.minecraft.network.Connection;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flushes every buffer that was touched during the tick in a single pass at tick end.
+ * <p>
+ * Channels are grouped by their Netty event loop, so each loop is woken up once
+ * per tick instead of once per player. Only used from the server thread.
+ */
+public final class PulseFlushCoordinator {
+    private static final List<PulseBuffer> scheduled = new ArrayList<>();
+
+    private PulseFlushCoordinator() {}
+
+    /**
+     * Queues the buffer for the tick-end flush.
+     */
+    public static void schedule(PulseBuffer buffer) {
+        if (buffer.tickFlushScheduled) return;
+        buffer.tickFlushScheduled = true;
+        scheduled.add(buffer);
+    }
+
+    /**
+     * Flushes all scheduled buffers. Called once at the end of every server tick.
+     */
+    public static void flushAll() {
+        if (scheduled.isEmpty()) return;
+
+        Map<EventLoop, List<Channel>> groups = new IdentityHashMap<>();
+        int channels = 0;
+
+        // The server doesn't tick during this pass, so viewers can share chunk work
+        ChunkPacketCache.open();
+        SharedBlockDecisions.open();
+        try {
+            for (PulseBuffer buffer : scheduled) {
+                buffer.tickFlushScheduled = false;
+
+                Connection connection = buffer.getConnection();
+                Channel channel = connection.channel;
+                if (channel == null || !connection.isConnected()) {
+                    // Let the connection queue the flush until it is ready
+                    buffer.flush(FlushReason.TICK_BATCH);
+                    continue;
+                }
+                if (!buffer.prepareFlush()) continue;
+
+                groups.computeIfAbsent(channel.eventLoop(), loop -> new ArrayList<>()).add(channel);
+                channels++;
+            }
+        } finally {
+            ChunkPacketCache.close();
+            SharedBlockDecisions.close();
+            scheduled.clear();
+        }
+
+        for (Map.Entry<EventLoop, List<Channel>> entry : groups.entrySet()) {
+            List<Channel> group = entry.getValue();
+            entry.getKey().execute(() -> {
+                for (int i = 0, size = group.size(); i < size; i++) {
+                    group.get(i).flush();
+                }
+            });
+        }
+
+        Metrics.physicalCounter.addAndGet(channels);
+        Metrics.flushWakeupsSaved.addAndGet(channels - groups.size());
+    }
+}
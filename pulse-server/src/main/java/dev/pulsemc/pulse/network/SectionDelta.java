@@ -0,0 +1,95 @@
+package dev.pulsemc.pulse.network;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.shorts.Short2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.shorts.Short2ObjectMap;
+import it.unimi.dsi.fastutil.shorts.Short2ObjectMaps;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundBlockUpdatePacket;
+import net.minecraft.network.protocol.game.ClientboundSectionBlocksUpdatePacket;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Block changes of one chunk, compacted to one update per section.
+ * <p>
+ * Changes to the same position are deduplicated, the last state wins. Block entity
+ * data is kept as is and sent after the block states it belongs to. Reused between
+ * chunks through {@link #clear()}, which keeps the per-section maps for the next chunk.
+ */
+final class SectionDelta {
+    private final Long2ObjectLinkedOpenHashMap<Short2ObjectLinkedOpenHashMap<BlockState>> sections = new Long2ObjectLinkedOpenHashMap<>();
+    private final List<Packet<?>> blockEntities = new ArrayList<>();
+    private final List<Short2ObjectLinkedOpenHashMap<BlockState>> spareSections = new ArrayList<>();
+
+    void add(Packet<?> packet) {
+        if (packet instanceof ClientboundBlockUpdatePacket update) {
+            add(update.getPos(), update.getBlockState());
+        } else if (packet instanceof ClientboundSectionBlocksUpdatePacket update) {
+            Short2ObjectLinkedOpenHashMap<BlockState> states = section(update.sectionPos.asLong());
+            for (int i = 0; i < update.positions.length; i++) {
+                states.put(update.positions[i], update.states[i]);
+            }
+        } else {
+            blockEntities.add(packet);
+        }
+    }
+
+    void add(BlockPos pos, BlockState state) {
+        section(SectionPos.asLong(pos)).put(SectionPos.sectionRelativePos(pos), state);
+    }
+
+    private Short2ObjectLinkedOpenHashMap<BlockState> section(long sectionKey) {
+        Short2ObjectLinkedOpenHashMap<BlockState> states = sections.get(sectionKey);
+        if (states == null) {
+            states = spareSections.isEmpty() ? new Short2ObjectLinkedOpenHashMap<>() : spareSections.remove(spareSections.size() - 1);
+            sections.put(sectionKey, states);
+        }
+        return states;
+    }
+
+    void clear() {
+        for (Short2ObjectLinkedOpenHashMap<BlockState> states : sections.values()) {
+            states.clear();
+            spareSections.add(states);
+        }
+        sections.clear();
+        blockEntities.clear();
+    }
+
+    int sectionCount() {
+        return sections.size();
+    }
+
+    /**
+     * @return the compacted packets, block states first and block entities after them
+     */
+    List<Packet<?>> toPackets() {
+        List<Packet<?>> packets = new ArrayList<>(sections.size() + blockEntities.size());
+        for (var entry : sections.long2ObjectEntrySet()) {
+            SectionPos sectionPos = SectionPos.of(entry.getLongKey());
+            Short2ObjectLinkedOpenHashMap<BlockState> states = entry.getValue();
+
+            if (states.size() == 1) {
+                short pos = states.firstShortKey();
+                packets.add(new ClientboundBlockUpdatePacket(sectionPos.relativeToBlockPos(pos), states.get(pos)));
+                continue;
+            }
+
+            short[] positions = new short[states.size()];
+            BlockState[] values = new BlockState[states.size()];
+            int i = 0;
+            for (Short2ObjectMap.Entry<BlockState> state : Short2ObjectMaps.fastIterable(states)) {
+                positions[i] = state.getShortKey();
+                values[i++] = state.getValue();
+            }
+            packets.add(new ClientboundSectionBlocksUpdatePacket(sectionPos, positions, values));
+        }
+        packets.addAll(blockEntities);
+        return packets;
+    }
+}
@@ -0,0 +1,78 @@
+package dev.pulsemc.pulse.network;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.world.level.Level;
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Explosion optimization results shared between all viewers of a chunk.
+ * <p>
+ * Block changes are broadcast as the same packet instances to every player tracking the
+ * chunk, so the first viewer's result can be handed to the rest. A viewer whose updates
+ * differ in any way, for example because a virtual block rewrote one of them, doesn't
+ * match and computes its own. Like {@link ChunkPacketCache}, results only live during
+ * the tick-end flush, while the server doesn't tick. They are only shared while no plugin
+ * listens to the optimization event, the one place plugin code runs in that pass.
+ * Server thread only.
+ */
+final class SharedBlockDecisions {
+
+    /**
+     * Packets to send for one chunk in place of its block updates.
+     *
+     * @param source the block updates the decision was made for
+     * @param fullChunk whether the packets are a full chunk resend
+     * @param savedBytes estimated bytes saved compared to sending the source as is
+     */
+    record Decision(Packet<?>[] source, List<Packet<?>> packets, boolean fullChunk, int savedBytes) {}
+
+    private static final Map<Level, Long2ObjectOpenHashMap<Decision>> decisions = new Reference2ObjectOpenHashMap<>();
+    private static boolean open = false;
+
+    private SharedBlockDecisions() {}
+
+    static void open() {
+        open = true;
+    }
+
+    static void close() {
+        open = false;
+        decisions.clear();
+    }
+
+    /**
+     * @return whether decisions are stored, only during the tick-end flush
+     */
+    static boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * @return a decision made for exactly the same block updates, or null
+     */
+    static @Nullable Decision find(Level level, BlockUpdateBatch batch, BlockUpdateBatch.ChunkGroup group) {
+        if (!open) return null;
+
+        Long2ObjectOpenHashMap<Decision> levelDecisions = decisions.get(level);
+        if (levelDecisions == null) return null;
+
+        Decision decision = levelDecisions.get(group.chunkKey);
+        if (decision == null || decision.source().length != group.size) return null;
+
+        Packet<?>[] source = decision.source();
+        for (int i = 0; i < group.size; i++) {
+            if (source[i] != batch.packets[group.indices[i]]) return null;
+        }
+        return decision;
+    }
+
+    static void store(Level level, BlockUpdateBatch.ChunkGroup group, Decision decision) {
+        if (!open) return;
+        decisions.computeIfAbsent(level, l -> new Long2ObjectOpenHashMap<>()).put(group.chunkKey, decision);
+    }
+}
@@ -1,60 +1,239 @@
 package dev.pulsemc.pulse.network;
 
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntMaps;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
+import org.bukkit.Bukkit;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
+/**
+ * Virtual blocks of one player, packed per chunk as block position to global state id.
+ * <p>
+ * Each block costs one int key and one int value in an open hash map instead of a boxed
+ * key, a {@link BlockPos} and a map entry. Lookups are O(1). Chunks the player no longer
+ * sees can be frozen into a flat {@code long[]} and are thawed on the next access.
+ * Accessed from whichever thread sends block packets, so all methods are synchronized.
+ */
 public class VirtualBlockTracker {
-    private final Map<Long, Map<BlockPos, BlockState>> virtualBlocks = new ConcurrentHashMap<>();
-    private final Map<Long, Long> chunkTimestamps = new ConcurrentHashMap<>();
-    private static final long FAKE_TTL = 30_000L;
+    private static final int NO_STATE = -1;
+    // How long a chunk is kept out of the explosion optimization after a virtual block change
+    private static final int PROTECTION_TICKS = 600;
 
-    public void registerBlock(BlockPos pos, BlockState state) {
+    private final Long2ObjectOpenHashMap<Int2IntOpenHashMap> virtualBlocks = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<long[]> frozenChunks = new Long2ObjectOpenHashMap<>();
+    private final Long2IntOpenHashMap protectedUntil = new Long2IntOpenHashMap();
+
+    // Position inside the chunk: y in the upper bits, then z and x
+    private static int pack(BlockPos pos) {
+        return (pos.getY() << 8) | ((pos.getZ() & 15) << 4) | (pos.getX() & 15);
+    }
+
+    private static BlockPos unpack(int chunkX, int chunkZ, int packed) {
+        return new BlockPos((chunkX << 4) | (packed & 15), packed >> 8, (chunkZ << 4) | ((packed >> 4) & 15));
+    }
+
+    public synchronized void registerBlock(BlockPos pos, BlockState state) {
         long key = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
-        virtualBlocks.computeIfAbsent(key, k -> new HashMap<>()).put(pos, state);
-        chunkTimestamps.put(key, System.currentTimeMillis());
+        Int2IntOpenHashMap chunkMap = hotChunk(key);
+        if (chunkMap == null) {
+            chunkMap = new Int2IntOpenHashMap();
+            chunkMap.defaultReturnValue(NO_STATE);
+            virtualBlocks.put(key, chunkMap);
+        }
+        chunkMap.put(pack(pos), Block.getId(state));
+        protectedUntil.put(key, Bukkit.getCurrentTick() + PROTECTION_TICKS);
     }
 
-    public void unregisterBlock(BlockPos pos) {
+    public synchronized void unregisterBlock(BlockPos pos) {
         long key = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
-        Map<BlockPos, BlockState> chunkMap = virtualBlocks.get(key);
+        Int2IntOpenHashMap chunkMap = hotChunk(key);
         if (chunkMap != null) {
-            chunkMap.remove(pos);
-            if (chunkMap.isEmpty()) virtualBlocks.remove(key);
+            chunkMap.remove(pack(pos));
+            if (chunkMap.isEmpty()) evict(key);
+        }
+    }
+
+    public synchronized boolean hasBlocksInChunk(int x, int z) {
+        long key = ChunkPos.asLong(x, z);
+        return virtualBlocks.containsKey(key) || frozenChunks.containsKey(key);
+    }
+
+    /**
+     * Removes all virtual blocks inside the box, bounds included.
+     *
+     * @return the positions that were removed
+     */
+    public synchronized List<BlockPos> unregisterRegion(BlockPos min, BlockPos max) {
+        List<BlockPos> removed = new ArrayList<>();
+        for (int chunkX = min.getX() >> 4; chunkX <= max.getX() >> 4; chunkX++) {
+            for (int chunkZ = min.getZ() >> 4; chunkZ <= max.getZ() >> 4; chunkZ++) {
+                long key = ChunkPos.asLong(chunkX, chunkZ);
+                Int2IntOpenHashMap chunkMap = hotChunk(key);
+                if (chunkMap == null) continue;
+
+                IntIterator iterator = chunkMap.keySet().iterator();
+                while (iterator.hasNext()) {
+                    BlockPos pos = unpack(chunkX, chunkZ, iterator.nextInt());
+                    if (pos.getX() < min.getX() || pos.getX() > max.getX()
+                            || pos.getY() < min.getY() || pos.getY() > max.getY()
+                            || pos.getZ() < min.getZ() || pos.getZ() > max.getZ()) continue;
+                    iterator.remove();
+                    removed.add(pos);
+                }
+                if (chunkMap.isEmpty()) evict(key);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Calls the action for every virtual block in the chunk. The action runs outside the
+     * lock, so it may look up other trackers.
+     */
+    public void forEachInChunk(int x, int z, BiConsumer<BlockPos, BlockState> action) {
+        int[] positions;
+        int[] states;
+        synchronized (this) {
+            Int2IntOpenHashMap chunkMap = hotChunk(ChunkPos.asLong(x, z));
+            if (chunkMap == null) return;
+
+            positions = new int[chunkMap.size()];
+            states = new int[positions.length];
+            int i = 0;
+            for (Int2IntMap.Entry entry : Int2IntMaps.fastIterable(chunkMap)) {
+                positions[i] = entry.getIntKey();
+                states[i++] = entry.getIntValue();
+            }
+        }
+
+        for (int i = 0; i < positions.length; i++) {
+            action.accept(unpack(x, z, positions[i]), Block.stateById(states[i]));
+        }
+    }
+
+    public synchronized boolean isChunkProtected(long chunkKey) {
+        if (!protectedUntil.containsKey(chunkKey)) return false;
+        if (Bukkit.getCurrentTick() < protectedUntil.get(chunkKey)) return true;
+        protectedUntil.remove(chunkKey);
+        return false;
+    }
+
+    /**
+     * Moves the chunk's blocks into compact storage once the player stops seeing the chunk.
+     * They stay readable and come back on the next access.
+     */
+    public synchronized void freezeChunk(long chunkKey) {
+        Int2IntOpenHashMap chunkMap = virtualBlocks.remove(chunkKey);
+        protectedUntil.remove(chunkKey);
+        if (chunkMap == null) return;
+
+        long[] packed = new long[chunkMap.size()];
+        int i = 0;
+        for (Int2IntMap.Entry entry : Int2IntMaps.fastIterable(chunkMap)) {
+            packed[i++] = ((long) entry.getIntKey() << 32) | (entry.getIntValue() & 0xFFFFFFFFL);
         }
+        frozenChunks.put(chunkKey, packed);
     }
 
-    public Map<BlockPos, BlockState> getBlocksInChunk(int x, int z) {
-        return virtualBlocks.get(ChunkPos.asLong(x, z));
+    private Int2IntOpenHashMap hotChunk(long chunkKey) {
+        Int2IntOpenHashMap chunkMap = virtualBlocks.get(chunkKey);
+        if (chunkMap != null || frozenChunks.isEmpty()) return chunkMap;
+
+        long[] packed = frozenChunks.remove(chunkKey);
+        if (packed == null) return null;
+
+        chunkMap = new Int2IntOpenHashMap(packed.length);
+        chunkMap.defaultReturnValue(NO_STATE);
+        for (long entry : packed) {
+            chunkMap.put((int) (entry >> 32), (int) entry);
+        }
+        virtualBlocks.put(chunkKey, chunkMap);
+        return chunkMap;
     }
 
-    public boolean isChunkProtected(long chunkKey) {
-        Long lastUpdate = chunkTimestamps.get(chunkKey);
-        return lastUpdate != null && (System.currentTimeMillis() - lastUpdate < FAKE_TTL);
+    // The chunk's last block is gone, forget it entirely
+    private void evict(long chunkKey) {
+        virtualBlocks.remove(chunkKey);
+        protectedUntil.remove(chunkKey);
     }
 
-    public void clear() {
+    public synchronized void clear() {
         virtualBlocks.clear();
-        chunkTimestamps.clear();
+        frozenChunks.clear();
+        protectedUntil.clear();
     }
 
     /**
      * Gets the specific block state at position.
      */
-    public BlockState getBlock(BlockPos pos) {
+    public synchronized BlockState getBlock(BlockPos pos) {
+        if (virtualBlocks.isEmpty() && frozenChunks.isEmpty()) return null;
+
         long key = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
-        Map<BlockPos, BlockState> chunkMap = virtualBlocks.get(key);
-        return chunkMap != null ? chunkMap.get(pos) : null;
+        Int2IntOpenHashMap chunkMap = hotChunk(key);
+        if (chunkMap == null) return null;
+
+        int id = chunkMap.get(pack(pos));
+        return id != NO_STATE ? Block.stateById(id) : null;
     }
 
-    public Map<BlockPos, BlockState> getAllBlocks() {
+    public synchronized Map<BlockPos, BlockState> getAllBlocks() {
         Map<BlockPos, BlockState> all = new HashMap<>();
-        for (Map<BlockPos, BlockState> chunkMap : virtualBlocks.values()) {
-            all.putAll(chunkMap);
+        for (Long2ObjectMap.Entry<Int2IntOpenHashMap> chunk : Long2ObjectMaps.fastIterable(virtualBlocks)) {
+            int chunkX = ChunkPos.getX(chunk.getLongKey());
+            int chunkZ = ChunkPos.getZ(chunk.getLongKey());
+            for (Int2IntMap.Entry entry : Int2IntMaps.fastIterable(chunk.getValue())) {
+                all.put(unpack(chunkX, chunkZ, entry.getIntKey()), Block.stateById(entry.getIntValue()));
+            }
+        }
+        for (Long2ObjectMap.Entry<long[]> chunk : Long2ObjectMaps.fastIterable(frozenChunks)) {
+            int chunkX = ChunkPos.getX(chunk.getLongKey());
+            int chunkZ = ChunkPos.getZ(chunk.getLongKey());
+            for (long entry : chunk.getValue()) {
+                all.put(unpack(chunkX, chunkZ, (int) (entry >> 32)), Block.stateById((int) entry));
+            }
         }
         return all;
     }
-}
\ No newline at end of file
+
+    public synchronized int size() {
+        int size = 0;
+        for (Int2IntOpenHashMap chunkMap : virtualBlocks.values()) {
+            size += chunkMap.size();
+        }
+        for (long[] packed : frozenChunks.values()) {
+            size += packed.length;
+        }
+        return size;
+    }
+
+    /**
+     * @return estimated heap bytes used by the tracked blocks, from the sizes of the backing arrays
+     */
+    public synchronized long estimateMemoryUsage() {
+        // Long keys and references of the chunk maps, plus their object headers
+        long bytes = 12L * HashCommon.arraySize(virtualBlocks.size() + frozenChunks.size(), Hash.DEFAULT_LOAD_FACTOR) + 96;
+        for (Int2IntOpenHashMap chunkMap : virtualBlocks.values()) {
+            bytes += 8L * HashCommon.arraySize(chunkMap.size(), Hash.DEFAULT_LOAD_FACTOR) + 64;
+        }
+        for (long[] packed : frozenChunks.values()) {
+            bytes += 8L * packed.length + 16;
+        }
+        return bytes + 12L * HashCommon.arraySize(protectedUntil.size(), Hash.DEFAULT_LOAD_FACTOR);
+    }
+}
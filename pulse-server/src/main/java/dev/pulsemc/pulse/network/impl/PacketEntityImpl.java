@@ -0,0 +1,236 @@
+package dev.pulsemc.pulse.network.impl;
+
+import com.mojang.datafixers.util.Pair;
+import dev.pulsemc.pulse.api.virtual.entity.PacketEntity;
+import io.papermc.paper.adventure.PaperAdventure;
+import net.kyori.adventure.text.Component;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientGamePacketListener;
+import net.minecraft.network.protocol.game.ClientboundAddEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundBundlePacket;
+import net.minecraft.network.protocol.game.ClientboundEntityPositionSyncPacket;
+import net.minecraft.network.protocol.game.ClientboundRemoveEntitiesPacket;
+import net.minecraft.network.protocol.game.ClientboundRotateHeadPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEquipmentPacket;
+import net.minecraft.network.syncher.SynchedEntityData;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntitySpawnReason;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.phys.Vec3;
+import org.bukkit.Location;
+import org.bukkit.craftbukkit.CraftEquipmentSlot;
+import org.bukkit.craftbukkit.CraftWorld;
+import org.bukkit.craftbukkit.entity.CraftEntityType;
+import org.bukkit.craftbukkit.inventory.CraftItemStack;
+import org.bukkit.entity.EntityType;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The state of a packet entity is kept in an NMS entity that is never added to the world.
+ * It provides the network id, the synched data and the packet constructors, but is never
+ * ticked or tracked.
+ */
+public class PacketEntityImpl implements PacketEntity {
+    private final PacketEntityTracker tracker;
+    private final ServerPlayer viewer;
+    private final ServerLevel level;
+    private final Entity handle;
+    private final EntityType type;
+    private final Map<net.minecraft.world.entity.EquipmentSlot, net.minecraft.world.item.ItemStack> equipment = new EnumMap<>(net.minecraft.world.entity.EquipmentSlot.class);
+
+    long chunkKey;
+    boolean shown = false;
+    private boolean valid = true;
+
+    // Movement in progress, interpolated from start to target
+    private double startX, startY, startZ, targetX, targetY, targetZ;
+    private float startYaw, startPitch, targetYaw, targetPitch;
+    private int moveTick, moveTicks;
+
+    PacketEntityImpl(PacketEntityTracker tracker, ServerPlayer viewer, Location location, EntityType type) {
+        this.tracker = tracker;
+        this.viewer = viewer;
+        this.level = location.getWorld() != null ? ((CraftWorld) location.getWorld()).getHandle() : viewer.level();
+        this.type = type;
+
+        Entity entity = CraftEntityType.bukkitToMinecraft(type).create(level, EntitySpawnReason.COMMAND);
+        if (entity == null) throw new IllegalArgumentException("Can't spawn " + type + " as a packet entity");
+        this.handle = entity;
+        handle.snapTo(location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
+        handle.setYHeadRot(location.getYaw());
+        this.chunkKey = ChunkPos.asLong(Mth.floor(location.getX()) >> 4, Mth.floor(location.getZ()) >> 4);
+    }
+
+    @Override public int getEntityId() { return handle.getId(); }
+    @Override public @NotNull UUID getUniqueId() { return handle.getUUID(); }
+    @Override public @NotNull EntityType getType() { return type; }
+    @Override public boolean isValid() { return valid; }
+
+    @Override
+    public @NotNull Location getLocation() {
+        return new Location(level.getWorld(), handle.getX(), handle.getY(), handle.getZ(), handle.getYRot(), handle.getXRot());
+    }
+
+    @Override
+    public void teleport(@NotNull Location location) {
+        if (!valid) return;
+        tracker.stopMoving(this);
+        setPosition(location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
+    }
+
+    @Override
+    public void moveTo(@NotNull Location location, int ticks) {
+        if (!valid) return;
+        if (ticks <= 1) {
+            teleport(location);
+            return;
+        }
+
+        startX = handle.getX();
+        startY = handle.getY();
+        startZ = handle.getZ();
+        startYaw = handle.getYRot();
+        startPitch = handle.getXRot();
+        targetX = location.getX();
+        targetY = location.getY();
+        targetZ = location.getZ();
+        targetYaw = location.getYaw();
+        targetPitch = location.getPitch();
+        moveTick = 0;
+        moveTicks = ticks;
+        tracker.startMoving(this);
+    }
+
+    /**
+     * @return true while the movement is still in progress
+     */
+    boolean tickMovement() {
+        if (!valid) return false;
+        moveTick++;
+        float delta = (float) moveTick / moveTicks;
+        setPosition(
+                Mth.lerp(delta, startX, targetX),
+                Mth.lerp(delta, startY, targetY),
+                Mth.lerp(delta, startZ, targetZ),
+                Mth.rotLerp(delta, startYaw, targetYaw),
+                Mth.lerp(delta, startPitch, targetPitch)
+        );
+        return moveTick < moveTicks;
+    }
+
+    private void setPosition(double x, double y, double z, float yaw, float pitch) {
+        handle.snapTo(x, y, z, yaw, pitch);
+        handle.setYHeadRot(yaw);
+
+        long newChunk = ChunkPos.asLong(Mth.floor(x) >> 4, Mth.floor(z) >> 4);
+        if (newChunk != chunkKey) {
+            long oldChunk = chunkKey;
+            chunkKey = newChunk;
+            tracker.moved(this, oldChunk, newChunk);
+        }
+
+        if (shown) {
+            send(ClientboundEntityPositionSyncPacket.of(handle));
+            send(new ClientboundRotateHeadPacket(handle, Mth.packDegrees(yaw)));
+        }
+    }
+
+    @Override
+    public void setCustomName(@Nullable Component name) {
+        if (!valid) return;
+        handle.setCustomName(name != null ? PaperAdventure.asVanilla(name) : null);
+        sendDirtyData();
+    }
+
+    @Override
+    public void setCustomNameVisible(boolean visible) {
+        if (!valid) return;
+        handle.setCustomNameVisible(visible);
+        sendDirtyData();
+    }
+
+    @Override
+    public void setGlowing(boolean glowing) {
+        if (!valid) return;
+        handle.setGlowingTag(glowing);
+        sendDirtyData();
+    }
+
+    @Override
+    public void setInvisible(boolean invisible) {
+        if (!valid) return;
+        handle.setInvisible(invisible);
+        sendDirtyData();
+    }
+
+    @Override
+    public void setEquipment(@NotNull EquipmentSlot slot, @Nullable ItemStack item) {
+        if (!valid) return;
+        net.minecraft.world.entity.EquipmentSlot nmsSlot = CraftEquipmentSlot.getNMS(slot);
+        net.minecraft.world.item.ItemStack stack = CraftItemStack.asNMSCopy(item);
+        if (stack.isEmpty()) {
+            equipment.remove(nmsSlot);
+        } else {
+            equipment.put(nmsSlot, stack);
+        }
+        if (shown) send(new ClientboundSetEquipmentPacket(handle.getId(), List.of(Pair.of(nmsSlot, stack))));
+    }
+
+    @Override
+    public void remove() {
+        if (!valid) return;
+        hide();
+        valid = false;
+        tracker.removed(this);
+    }
+
+    /**
+     * Spawns the entity on the client with its current data and equipment in one bundle.
+     */
+    void show() {
+        if (shown || !valid || viewer.level() != level) return;
+        shown = true;
+
+        List<Packet<? super ClientGamePacketListener>> packets = new ArrayList<>(3);
+        packets.add(new ClientboundAddEntityPacket(handle.getId(), handle.getUUID(), handle.getX(), handle.getY(), handle.getZ(),
+                handle.getXRot(), handle.getYRot(), handle.getType(), 0, Vec3.ZERO, handle.getYHeadRot()));
+        // Anything dirty is part of the full data below
+        handle.getEntityData().packDirty();
+        List<SynchedEntityData.DataValue<?>> data = handle.getEntityData().getNonDefaultValues();
+        if (data != null) packets.add(new ClientboundSetEntityDataPacket(handle.getId(), data));
+        if (!equipment.isEmpty()) {
+            List<Pair<net.minecraft.world.entity.EquipmentSlot, net.minecraft.world.item.ItemStack>> items = new ArrayList<>(equipment.size());
+            equipment.forEach((slot, stack) -> items.add(Pair.of(slot, stack)));
+            packets.add(new ClientboundSetEquipmentPacket(handle.getId(), items));
+        }
+        send(new ClientboundBundlePacket(packets));
+    }
+
+    void hide() {
+        if (!shown) return;
+        shown = false;
+        send(new ClientboundRemoveEntitiesPacket(handle.getId()));
+    }
+
+    private void sendDirtyData() {
+        List<SynchedEntityData.DataValue<?>> dirty = handle.getEntityData().packDirty();
+        if (dirty != null && shown) send(new ClientboundSetEntityDataPacket(handle.getId(), dirty));
+    }
+
+    private void send(Packet<?> packet) {
+        viewer.connection.send(packet);
+    }
+}
@@ -0,0 +1,128 @@
+package dev.pulsemc.pulse.network.impl;
+
+import dev.pulsemc.pulse.api.virtual.entity.PacketEntity;
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.server.level.ServerPlayer;
+import org.bukkit.Location;
+import org.bukkit.entity.EntityType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Packet-only entities of one player, indexed by chunk so they can follow the player's view.
+ * <p>
+ * An entity is shown while its chunk is loaded on the client and removed from the client
+ * when the chunk is forgotten. Movements in progress are advanced once per player tick.
+ * Server thread only.
+ */
+public final class PacketEntityTracker {
+    private final ServerPlayer viewer;
+    private final Int2ObjectLinkedOpenHashMap<PacketEntityImpl> entities = new Int2ObjectLinkedOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<List<PacketEntityImpl>> byChunk = new Long2ObjectOpenHashMap<>();
+    private final List<PacketEntityImpl> moving = new ArrayList<>();
+
+    public PacketEntityTracker(ServerPlayer viewer) {
+        this.viewer = viewer;
+    }
+
+    public PacketEntityImpl spawn(Location location, EntityType type) {
+        PacketEntityImpl entity = new PacketEntityImpl(this, viewer, location, type);
+        entities.put(entity.getEntityId(), entity);
+        index(entity, entity.chunkKey);
+        if (isChunkSent(entity.chunkKey)) entity.show();
+        return entity;
+    }
+
+    public Collection<PacketEntity> getEntities() {
+        return List.copyOf(entities.values());
+    }
+
+    /**
+     * Shows the entities of a chunk the client just received.
+     */
+    public void chunkSent(long chunkKey) {
+        List<PacketEntityImpl> inChunk = byChunk.get(chunkKey);
+        if (inChunk == null) return;
+        for (PacketEntityImpl entity : inChunk) {
+            entity.show();
+        }
+    }
+
+    /**
+     * Removes the entities of a chunk the client is about to unload.
+     */
+    public void chunkForgotten(long chunkKey) {
+        List<PacketEntityImpl> inChunk = byChunk.get(chunkKey);
+        if (inChunk == null) return;
+        for (PacketEntityImpl entity : inChunk) {
+            entity.hide();
+        }
+    }
+
+    /**
+     * The client dropped all entities, for example on respawn or a world change.
+     */
+    public void clientReset() {
+        for (PacketEntityImpl entity : entities.values()) {
+            entity.shown = false;
+        }
+    }
+
+    public void tick() {
+        if (moving.isEmpty()) return;
+        moving.removeIf(entity -> !entity.tickMovement());
+    }
+
+    public void clear() {
+        for (PacketEntityImpl entity : List.copyOf(entities.values())) {
+            entity.remove();
+        }
+    }
+
+    void startMoving(PacketEntityImpl entity) {
+        if (!moving.contains(entity)) moving.add(entity);
+    }
+
+    void stopMoving(PacketEntityImpl entity) {
+        moving.remove(entity);
+    }
+
+    void moved(PacketEntityImpl entity, long oldChunk, long newChunk) {
+        unindex(entity, oldChunk);
+        index(entity, newChunk);
+        if (isChunkSent(newChunk)) {
+            entity.show();
+        } else {
+            entity.hide();
+        }
+    }
+
+    void removed(PacketEntityImpl entity) {
+        entities.remove(entity.getEntityId());
+        unindex(entity, entity.chunkKey);
+        moving.remove(entity);
+    }
+
+    private boolean isChunkSent(long chunkKey) {
+        return viewer.getBukkitEntity().isChunkSent(chunkKey);
+    }
+
+    private void index(PacketEntityImpl entity, long chunkKey) {
+        List<PacketEntityImpl> inChunk = byChunk.get(chunkKey);
+        if (inChunk == null) {
+            inChunk = new ArrayList<>(4);
+            byChunk.put(chunkKey, inChunk);
+        }
+        inChunk.add(entity);
+    }
+
+    private void unindex(PacketEntityImpl entity, long chunkKey) {
+        List<PacketEntityImpl> inChunk = byChunk.get(chunkKey);
+        if (inChunk == null) return;
+        inChunk.remove(entity);
+        if (inChunk.isEmpty()) byChunk.remove(chunkKey);
+    }
+}
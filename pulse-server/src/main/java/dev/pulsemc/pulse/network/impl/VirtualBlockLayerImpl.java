@@ -0,0 +1,170 @@
+package dev.pulsemc.pulse.network.impl;
+
+import dev.pulsemc.pulse.api.virtual.block.VirtualBlockLayer;
+import dev.pulsemc.pulse.network.PulseBuffer;
+import dev.pulsemc.pulse.network.VirtualBlockTracker;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.block.state.BlockState;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.craftbukkit.CraftWorld;
+import org.bukkit.craftbukkit.block.data.CraftBlockData;
+import org.bukkit.craftbukkit.entity.CraftPlayer;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Blocks are stored once in a {@link VirtualBlockTracker}; subscribers only keep a reference
+ * to the layer in their {@link PulseBuffer}, which resolves it when sending block updates
+ * and restoring chunks.
+ * <p>
+ * Subscribers are kept by player id, so they survive reconfiguration: the new connection
+ * picks up the player's layers through {@link #attach(ServerPlayer, PulseBuffer)}.
+ * <p>
+ * Updates are sent as plain block changes. The buffer rewrites them to whatever the player
+ * should see at the position, so overlapping layers and private blocks are handled there.
+ */
+public class VirtualBlockLayerImpl implements VirtualBlockLayer {
+    // Layers with at least one subscriber, searched when a player gets a new connection
+    private static final Set<VirtualBlockLayerImpl> subscribed = ConcurrentHashMap.newKeySet();
+
+    private final World world;
+    private final ServerLevel level;
+    private final int priority;
+    private final VirtualBlockTracker tracker = new VirtualBlockTracker();
+    private final Map<UUID, Player> subscribers = new ConcurrentHashMap<>();
+
+    public VirtualBlockLayerImpl(World world, int priority) {
+        this.world = world;
+        this.level = ((CraftWorld) world).getHandle();
+        this.priority = priority;
+    }
+
+    public ServerLevel getLevel() {
+        return level;
+    }
+
+    public VirtualBlockTracker getTracker() {
+        return tracker;
+    }
+
+    @Override public @NotNull World getWorld() { return world; }
+    @Override public int getPriority() { return priority; }
+
+    @Override
+    public void setBlock(@NotNull Location location, @NotNull BlockData data) {
+        BlockPos pos = new BlockPos(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        tracker.registerBlock(pos, ((CraftBlockData) data).getState());
+        showAll(pos, data);
+    }
+
+    @Override
+    public void removeBlock(@NotNull Location location) {
+        BlockPos pos = new BlockPos(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        tracker.unregisterBlock(pos);
+        showAll(pos, CraftBlockData.fromData(level.getBlockState(pos)));
+    }
+
+    @Override
+    public @Nullable BlockData getBlock(@NotNull Location location) {
+        BlockPos pos = new BlockPos(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        BlockState state = tracker.getBlock(pos);
+        return state != null ? CraftBlockData.fromData(state) : null;
+    }
+
+    @Override
+    public void clear() {
+        Set<BlockPos> positions = tracker.getAllBlocks().keySet();
+        tracker.clear();
+
+        for (Player player : subscribers.values()) {
+            PulseBuffer buffer = buffer(player);
+            if (buffer != null && player.getWorld() == world) buffer.refreshBlocks(positions);
+        }
+    }
+
+    @Override
+    public void subscribe(@NotNull Player player) {
+        PulseBuffer buffer = buffer(player);
+        if (buffer == null || !addSubscriber(player)) return;
+
+        buffer.addLayer(this);
+        if (player.getWorld() == world) buffer.refreshBlocks(tracker.getAllBlocks().keySet());
+    }
+
+    @Override
+    public void unsubscribe(@NotNull Player player) {
+        PulseBuffer buffer = buffer(player);
+        if (buffer == null || !removeSubscriber(player.getUniqueId())) return;
+
+        buffer.removeLayer(this);
+        if (player.getWorld() == world) buffer.refreshBlocks(tracker.getAllBlocks().keySet());
+    }
+
+    /**
+     * Adds the layers the player is subscribed to onto the buffer of their current connection
+     * and shows their blocks again. After reconfiguration the previous buffer is gone with its
+     * listener.
+     */
+    public static void attach(ServerPlayer player, PulseBuffer buffer) {
+        if (subscribed.isEmpty()) return;
+
+        Player bukkitPlayer = player.getBukkitEntity();
+        for (VirtualBlockLayerImpl layer : subscribed) {
+            if (layer.subscribers.replace(player.getUUID(), bukkitPlayer) == null) continue;
+            buffer.addLayer(layer);
+            if (bukkitPlayer.getWorld() == layer.world) buffer.refreshBlocks(layer.tracker.getAllBlocks().keySet());
+        }
+    }
+
+    /**
+     * Drops a subscriber whose connection is gone, without sending anything.
+     *
+     * @return false if the player wasn't subscribed
+     */
+    public synchronized boolean removeSubscriber(UUID playerId) {
+        if (subscribers.remove(playerId) == null) return false;
+        if (subscribers.isEmpty()) subscribed.remove(this);
+        return true;
+    }
+
+    private synchronized boolean addSubscriber(Player player) {
+        if (subscribers.putIfAbsent(player.getUniqueId(), player) != null) return false;
+        subscribed.add(this);
+        return true;
+    }
+
+    private static @Nullable PulseBuffer buffer(Player player) {
+        return ((CraftPlayer) player).getHandle().connection.pulseBuffer;
+    }
+
+    @Override
+    public boolean isSubscribed(@NotNull Player player) {
+        return subscribers.containsKey(player.getUniqueId());
+    }
+
+    @Override
+    public @NotNull Collection<Player> getSubscribers() {
+        return List.copyOf(subscribers.values());
+    }
+
+    private void showAll(BlockPos pos, BlockData data) {
+        for (Player player : subscribers.values()) {
+            if (player.getWorld() == world) show(player, pos, data);
+        }
+    }
+
+    private void show(Player player, BlockPos pos, BlockData data) {
+        player.sendBlockChange(new Location(world, pos.getX(), pos.getY(), pos.getZ()), data);
+    }
+}
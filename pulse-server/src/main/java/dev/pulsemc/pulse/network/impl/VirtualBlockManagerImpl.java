@@ -1,5 +1,6 @@
 package dev.pulsemc.pulse.network.impl;
 
+import dev.pulsemc.pulse.ConfigManager;
 import dev.pulsemc.pulse.api.virtual.block.VirtualBlockManager;
 import dev.pulsemc.pulse.network.PulseBuffer;
 import dev.pulsemc.pulse.network.VirtualBlockTracker;
@@ -9,6 +10,9 @@ import org.bukkit.Location;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.craftbukkit.block.data.CraftBlockData;
 import org.jspecify.annotations.NonNull;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
 public class VirtualBlockManagerImpl implements VirtualBlockManager {
     private final PulseBuffer buffer;
@@ -31,6 +35,44 @@ public class VirtualBlockManagerImpl implements VirtualBlockManager {
         player.sendBlockChange(location, data);
     }
 
+    @Override
+    public void setBlocks(@NonNull Map<Location, BlockData> blocks) {
+        Map<BlockPos, BlockState> states = new HashMap<>(blocks.size());
+        blocks.forEach((location, data) -> {
+            BlockPos pos = new BlockPos(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+            BlockState state = ((CraftBlockData) data).getState();
+            tracker.registerBlock(pos, state);
+            states.put(pos, state);
+        });
+        buffer.sendBlocks(states);
+    }
+
+    @Override
+    public void fill(@NonNull Location from, @NonNull Location to, @NonNull BlockData data) {
+        BlockPos min = new BlockPos(Math.min(from.getBlockX(), to.getBlockX()), Math.min(from.getBlockY(), to.getBlockY()), Math.min(from.getBlockZ(), to.getBlockZ()));
+        BlockPos max = new BlockPos(Math.max(from.getBlockX(), to.getBlockX()), Math.max(from.getBlockY(), to.getBlockY()), Math.max(from.getBlockZ(), to.getBlockZ()));
+        long volume = (long) (max.getX() - min.getX() + 1) * (max.getY() - min.getY() + 1) * (max.getZ() - min.getZ() + 1);
+        if (volume > ConfigManager.virtualBlocksMaxFillVolume) {
+            throw new IllegalArgumentException("Fill of " + volume + " blocks exceeds the limit of " + ConfigManager.virtualBlocksMaxFillVolume);
+        }
+        BlockState state = ((CraftBlockData) data).getState();
+
+        Map<BlockPos, BlockState> states = new HashMap<>((int) volume);
+        for (BlockPos pos : BlockPos.betweenClosed(min, max)) {
+            BlockPos immutable = pos.immutable();
+            tracker.registerBlock(immutable, state);
+            states.put(immutable, state);
+        }
+        buffer.sendBlocks(states);
+    }
+
+    @Override
+    public void clearRegion(@NonNull Location from, @NonNull Location to) {
+        BlockPos min = new BlockPos(Math.min(from.getBlockX(), to.getBlockX()), Math.min(from.getBlockY(), to.getBlockY()), Math.min(from.getBlockZ(), to.getBlockZ()));
+        BlockPos max = new BlockPos(Math.max(from.getBlockX(), to.getBlockX()), Math.max(from.getBlockY(), to.getBlockY()), Math.max(from.getBlockZ(), to.getBlockZ()));
+        buffer.refreshBlocks(tracker.unregisterRegion(min, max));
+    }
+
     @Override
     public void removeBlock(Location location) {
         BlockPos pos = new BlockPos(location.getBlockX(), location.getBlockY(), location.getBlockZ());
@@ -47,16 +89,23 @@ public class VirtualBlockManagerImpl implements VirtualBlockManager {
         return state != null ? CraftBlockData.fromData(state) : null;
     }
 
+    @Override
+    public int getBlockCount() {
+        return tracker.size();
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return tracker.estimateMemoryUsage();
+    }
+
     @Override
     public void clearAll() {
-        java.util.Map<BlockPos, BlockState> blocks = tracker.getAllBlocks();
+        Set<BlockPos> positions = tracker.getAllBlocks().keySet();
 
         tracker.clear();
 
-        for (BlockPos pos : blocks.keySet()) {
-            Location loc = new Location(player.getWorld(), pos.getX(), pos.getY(), pos.getZ());
-            player.sendBlockChange(loc, loc.getBlock().getBlockData());
-        }
+        buffer.refreshBlocks(positions);
     }
 
     @Override public void beginContext() { buffer.setManualFakeMode(true); }
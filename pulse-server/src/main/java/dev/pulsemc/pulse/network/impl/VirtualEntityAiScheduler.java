@@ -0,0 +1,145 @@
+package dev.pulsemc.pulse.network.impl;
+
+import dev.pulsemc.pulse.ConfigManager;
+import dev.pulsemc.pulse.metrics.Metrics;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Mob;
+import org.bukkit.Bukkit;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Level of detail for the AI of virtual mobs.
+ * <p>
+ * At the end of every tick each mob gets an interval from the distance to its nearest viewer
+ * and whether its viewers are idle. Mobs whose interval has passed are due, and up to the
+ * per-tick budget of them, the most overdue first, think during the next tick. All others
+ * skip their AI step, which skips sensing, goals, targeting and navigation, and stand still
+ * until their next one.
+ * <p>
+ * Throttling uses a flag of its own, {@code Mob#aware} is left to plugins. Server thread only.
+ */
+public final class VirtualEntityAiScheduler {
+    private static final Comparator<Entry> MOST_OVERDUE = Comparator.comparingInt((Entry entry) -> entry.overdue).reversed();
+
+    private static final List<Entry> entries = new ArrayList<>();
+    private static final List<Entry> due = new ArrayList<>();
+
+    private VirtualEntityAiScheduler() {}
+
+    public static void register(Mob mob) {
+        entries.add(new Entry(mob));
+    }
+
+    /**
+     * Picks the mobs that think during the next tick. Called once at the end of every server tick.
+     */
+    public static void tick() {
+        if (entries.isEmpty()) return;
+
+        if (!ConfigManager.virtualAiEnabled) {
+            // Hand the AI back, the mobs stay registered in case the scheduler is enabled again
+            entries.removeIf(Entry::isGone);
+            for (Entry entry : entries) {
+                entry.release();
+            }
+            return;
+        }
+
+        int now = Bukkit.getCurrentTick();
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.isGone()) {
+                iterator.remove();
+                continue;
+            }
+            // Made unaware by a plugin, it doesn't think anyway and shouldn't take from the budget
+            if (!entry.mob.aware) {
+                entry.release();
+                continue;
+            }
+
+            entry.overdue = now - entry.lastStep - interval(entry.mob);
+            if (entry.overdue >= 0) {
+                due.add(entry);
+            } else {
+                entry.throttle();
+            }
+        }
+
+        int budget = ConfigManager.virtualAiStepsPerTick;
+        if (due.size() > budget) due.sort(MOST_OVERDUE);
+        for (int i = 0; i < due.size(); i++) {
+            Entry entry = due.get(i);
+            if (i < budget) {
+                entry.run(now);
+            } else {
+                entry.throttle();
+            }
+        }
+        due.clear();
+    }
+
+    /**
+     * @return ticks between two AI steps of the mob
+     */
+    private static int interval(Mob mob) {
+        VirtualViewers viewers = mob.pulseVirtualViewers;
+        if (viewers == null) return 1;
+
+        int maxInterval = ConfigManager.virtualAiMaxInterval;
+        long afkMillis = ConfigManager.virtualAiAfkSeconds * 1000L;
+        double nearest = Double.MAX_VALUE;
+        boolean active = afkMillis == 0;
+        for (ServerPlayer player : viewers.players(((ServerLevel) mob.level()).getServer())) {
+            if (player.level() != mob.level()) continue;
+            nearest = Math.min(nearest, player.distanceToSqr(mob));
+            if (!active && player.getBukkitEntity().getIdleDuration().toMillis() < afkMillis) active = true;
+        }
+        // Nobody online can see it, or nobody is playing
+        if (nearest == Double.MAX_VALUE || !active) return maxInterval;
+
+        int full = ConfigManager.virtualAiFullDistance;
+        int max = Math.max(ConfigManager.virtualAiMaxDistance, full + 1);
+        double distance = Math.sqrt(nearest);
+        if (distance <= full) return 1;
+        if (distance >= max) return maxInterval;
+        return 1 + (int) ((maxInterval - 1) * (distance - full) / (max - full));
+    }
+
+    private static final class Entry {
+        final Mob mob;
+        // Far in the past, so a new mob thinks on its first tick
+        int lastStep = Integer.MIN_VALUE / 2;
+        int overdue;
+
+        Entry(Mob mob) {
+            this.mob = mob;
+        }
+
+        boolean isGone() {
+            if (!mob.isRemoved() && mob.pulseIsVirtual()) return false;
+            release();
+            return true;
+        }
+
+        void run(int tick) {
+            lastStep = tick;
+            release();
+        }
+
+        void throttle() {
+            Metrics.virtualAiStepsSkipped.incrementAndGet();
+            mob.pulseAiThrottled = true;
+        }
+
+        void release() {
+            mob.pulseAiThrottled = false;
+        }
+    }
+}
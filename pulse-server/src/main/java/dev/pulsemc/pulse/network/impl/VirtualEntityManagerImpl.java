@@ -1,8 +1,10 @@
 package dev.pulsemc.pulse.network.impl;
 
+import dev.pulsemc.pulse.api.virtual.entity.PacketEntity;
 import dev.pulsemc.pulse.api.virtual.entity.VirtualEntityManager;
 import org.bukkit.Location;
 import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
@@ -29,14 +31,37 @@ public class VirtualEntityManagerImpl implements VirtualEntityManager {
 
         net.minecraft.world.entity.Entity nmsEntity = ((org.bukkit.craftbukkit.entity.CraftEntity) bukkitEntity).getHandle();
 
-        nmsEntity.pulseVirtualViewers.add(player.getUniqueId());
+        VirtualViewers viewers = new VirtualViewers();
+        viewers.add(player.getUniqueId());
+        nmsEntity.pulseVirtualViewers = viewers;
 
         bukkitWorld.getHandle().addFreshEntity(nmsEntity);
+        if (nmsEntity instanceof net.minecraft.world.entity.Mob mob) {
+            VirtualEntityAiScheduler.register(mob);
+        }
 
         entities.put(nmsEntity.getId(), bukkitEntity);
         return bukkitEntity;
     }
 
+    @Override
+    public @NotNull PacketEntity spawnPacketEntity(@NotNull Location location, @NotNull EntityType type) {
+        PacketEntityTracker tracker = packetEntities();
+        if (tracker == null) throw new IllegalStateException("Player is not in game");
+        return tracker.spawn(location, type);
+    }
+
+    @Override
+    public @NotNull Collection<PacketEntity> getPacketEntities() {
+        PacketEntityTracker tracker = packetEntities();
+        return tracker != null ? tracker.getEntities() : java.util.Collections.emptyList();
+    }
+
+    private PacketEntityTracker packetEntities() {
+        dev.pulsemc.pulse.network.PulseBuffer buffer = ((org.bukkit.craftbukkit.entity.CraftPlayer) player).getHandle().connection.pulseBuffer;
+        return buffer != null ? buffer.getPacketEntities() : null;
+    }
+
     @Override
     public boolean isVirtualEntity(@NotNull Entity entity) {
         return entities.containsKey(entity.getEntityId());
@@ -54,6 +79,9 @@ public class VirtualEntityManagerImpl implements VirtualEntityManager {
             entity.remove();
         }
         entities.clear();
+
+        PacketEntityTracker tracker = packetEntities();
+        if (tracker != null) tracker.clear();
     }
 
     @Override
@@ -113,8 +141,7 @@ public class VirtualEntityManagerImpl implements VirtualEntityManager {
         if (!isVirtualEntity(entity)) return java.util.Collections.emptySet();
 
         net.minecraft.world.entity.Entity nmsEntity = ((org.bukkit.craftbukkit.entity.CraftEntity) entity).getHandle();
-        return nmsEntity.pulseVirtualViewers != null ?
-                java.util.Collections.unmodifiableSet(nmsEntity.pulseVirtualViewers) :
-                java.util.Collections.emptySet();
+        VirtualViewers viewers = nmsEntity.pulseVirtualViewers;
+        return viewers != null ? viewers.toSet() : java.util.Collections.emptySet();
     }
 }
\ No newline at end of file
@@ -0,0 +1,191 @@
+package dev.pulsemc.pulse.network.impl;
+
+import dev.pulsemc.pulse.network.PulseBuffer;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Viewers of a virtual entity, as a sorted array of UUIDs.
+ * <p>
+ * Each viewer takes two longs, most significant bits first. Lookups are a binary search
+ * and the shared viewer check between two entities is a single merge walk. The array is
+ * replaced on every change, so readers on any thread never see it half updated.
+ */
+public final class VirtualViewers implements Iterable<UUID> {
+    private static final long[] EMPTY = new long[0];
+
+    private volatile long[] ids = EMPTY;
+    // Viewer players resolved from the ids, dropped on every change and when one of them leaves
+    private volatile ServerPlayer @Nullable [] players;
+
+    public boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+    public int size() {
+        return ids.length >> 1;
+    }
+
+    public boolean contains(UUID uuid) {
+        return indexOf(ids, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()) >= 0;
+    }
+
+    public synchronized boolean add(UUID uuid) {
+        long[] current = ids;
+        int index = indexOf(current, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        if (index >= 0) return false;
+
+        int insert = -(index + 1);
+        long[] updated = new long[current.length + 2];
+        System.arraycopy(current, 0, updated, 0, insert * 2);
+        updated[insert * 2] = uuid.getMostSignificantBits();
+        updated[insert * 2 + 1] = uuid.getLeastSignificantBits();
+        System.arraycopy(current, insert * 2, updated, insert * 2 + 2, current.length - insert * 2);
+        ids = updated;
+        players = null;
+        return true;
+    }
+
+    public synchronized boolean remove(UUID uuid) {
+        long[] current = ids;
+        int index = indexOf(current, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        if (index < 0) return false;
+
+        long[] updated = current.length == 2 ? EMPTY : new long[current.length - 2];
+        System.arraycopy(current, 0, updated, 0, index * 2);
+        System.arraycopy(current, index * 2 + 2, updated, index * 2, current.length - index * 2 - 2);
+        ids = updated;
+        players = null;
+        return true;
+    }
+
+    /**
+     * @return true if at least one player views both entities
+     */
+    public boolean sharesViewerWith(@Nullable VirtualViewers other) {
+        if (other == null) return false;
+        long[] a = ids;
+        long[] b = other.ids;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            int compare = compare(a[i], a[i + 1], b[j], b[j + 1]);
+            if (compare == 0) return true;
+            if (compare < 0) {
+                i += 2;
+            } else {
+                j += 2;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends the same packet instance to every online viewer in the level, straight into
+     * their {@link PulseBuffer}.
+     */
+    public void send(ServerLevel level, Packet<?> packet) {
+        for (ServerPlayer player : players(level.getServer())) {
+            if (player.level() != level) continue;
+            PulseBuffer buffer = player.connection.pulseBuffer;
+            if (buffer != null) {
+                buffer.add(packet, null);
+            } else {
+                player.connection.send(packet);
+            }
+        }
+    }
+
+    /**
+     * @return the viewers that are online, in any level. Cached, must not be modified
+     */
+    public ServerPlayer[] players(MinecraftServer server) {
+        ServerPlayer[] cached = players;
+        // While some viewers are offline, resolve again so they are found once they join
+        if (cached != null && cached.length == size()) {
+            boolean valid = true;
+            for (ServerPlayer player : cached) {
+                if (player.hasDisconnected()) {
+                    valid = false;
+                    break;
+                }
+            }
+            if (valid) return cached;
+        }
+
+        List<ServerPlayer> online = new ArrayList<>(size());
+        for (UUID uuid : this) {
+            ServerPlayer player = server.getPlayerList().getPlayer(uuid);
+            if (player != null) online.add(player);
+        }
+        cached = online.toArray(new ServerPlayer[0]);
+        players = cached;
+        return cached;
+    }
+
+    public Set<UUID> toSet() {
+        Set<UUID> set = new LinkedHashSet<>();
+        for (UUID uuid : this) {
+            set.add(uuid);
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    @Override
+    public Iterator<UUID> iterator() {
+        long[] snapshot = ids;
+        return new Iterator<>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < snapshot.length;
+            }
+
+            @Override
+            public UUID next() {
+                if (index >= snapshot.length) throw new NoSuchElementException();
+                UUID uuid = new UUID(snapshot[index], snapshot[index + 1]);
+                index += 2;
+                return uuid;
+            }
+        };
+    }
+
+    /**
+     * @return the viewer index, or -(insertion point + 1) if absent
+     */
+    private static int indexOf(long[] ids, long most, long least) {
+        int low = 0;
+        int high = (ids.length >> 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int compare = compare(ids[mid * 2], ids[mid * 2 + 1], most, least);
+            if (compare < 0) {
+                low = mid + 1;
+            } else if (compare > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int compare(long mostA, long leastA, long mostB, long leastB) {
+        int compare = Long.compare(mostA, mostB);
+        return compare != 0 ? compare : Long.compare(leastA, leastB);
+    }
+}